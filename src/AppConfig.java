@@ -0,0 +1,47 @@
+// src/AppConfig.java
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+// Settings from haushaltsbuch.properties in the working directory; system properties
+// with the same key (e.g. -Dsearch.debounceMillis=500) take precedence.
+public class AppConfig {
+    private static final Path FILE = Path.of("haushaltsbuch.properties");
+    private static final Properties PROPERTIES = load();
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        if (Files.isRegularFile(FILE)) {
+            try (InputStream in = Files.newInputStream(FILE)) {
+                properties.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return properties;
+    }
+
+    public static String getString(String key, String defaultValue) {
+        return System.getProperty(key, PROPERTIES.getProperty(key, defaultValue));
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ungültiger Wert für " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+}
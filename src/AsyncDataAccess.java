@@ -0,0 +1,138 @@
+// src/AsyncDataAccess.java
+import javax.swing.*;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs database work on virtual threads and hands the results back to the EDT.
+// Requests submitted on the same channel replace each other: the older request is cancelled
+// through Statement.cancel() and its result is never published.
+public class AsyncDataAccess {
+    public interface Task<T> {
+        T run() throws SQLException;
+    }
+
+    public static final class Request {
+        private final List<Statement> statements = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public synchronized void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            for (Statement stmt : statements) {
+                try {
+                    stmt.cancel();
+                } catch (SQLException ignored) {
+                    // Statement already finished or closed
+                }
+            }
+        }
+
+        private synchronized void track(Statement stmt) throws SQLException {
+            if (cancelled) {
+                throw new SQLException("Request cancelled");
+            }
+            statements.add(stmt);
+        }
+    }
+
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Request> latest = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final List<Consumer<Boolean>> busyListeners = new ArrayList<>();
+
+    // Registers a statement of the calling task so that cancelling the task cancels the statement.
+    // Outside of a task this is a no-op.
+    public static <S extends Statement> S track(S stmt) throws SQLException {
+        Request request = CURRENT.get();
+        if (request != null) {
+            request.track(stmt);
+        }
+        return stmt;
+    }
+
+    // Listeners are called on the EDT whenever the executor becomes busy or idle
+    public void addBusyListener(Consumer<Boolean> listener) {
+        busyListeners.add(listener);
+    }
+
+    public <T> Request submit(Task<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        return submit(null, task, onSuccess, onError);
+    }
+
+    public <T> Request submit(String channel, Task<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        Request request = new Request();
+        if (channel != null) {
+            Request previous = latest.put(channel, request);
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+        if (running.getAndIncrement() == 0) {
+            fireBusy();
+        }
+        executor.execute(() -> {
+            CURRENT.set(request);
+            try {
+                T result = task.run();
+                publish(request, () -> onSuccess.accept(result));
+            } catch (Exception e) {
+                publish(request, () -> onError.accept(e));
+            } finally {
+                CURRENT.remove();
+                if (channel != null) {
+                    latest.remove(channel, request);
+                }
+                if (running.decrementAndGet() == 0) {
+                    fireBusy();
+                }
+            }
+        });
+        return request;
+    }
+
+    // Cancels the request currently running on the channel, if any
+    public void cancel(String channel) {
+        Request request = latest.remove(channel);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    private static void publish(Request request, Runnable callback) {
+        if (request.isCancelled()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            // Checked again on the EDT: a newer request may have replaced this one in the meantime
+            if (!request.isCancelled()) {
+                callback.run();
+            }
+        });
+    }
+
+    private void fireBusy() {
+        SwingUtilities.invokeLater(() -> {
+            // Read the counter on the EDT so that racing transitions settle on the current state
+            boolean busy = running.get() > 0;
+            for (Consumer<Boolean> listener : busyListeners) {
+                listener.accept(busy);
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+// src/BookingExporter.java
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// Writes the rows of the bookings table to a file, one row at a time, through a buffered FileChannel.
+// Rows come from BookingTableModel.RowSource, so no more than one fetch of rows is held in memory.
+public class BookingExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char CSV_DELIMITER = AppConfig.getString("export.delimiter", ";").charAt(0);
+
+    public enum Format {
+        MARKDOWN("md"), CSV("csv"), JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // Format for a file name like "buchungen.csv" or "buchungen.jsonl.gz", or null
+        public static Format fromFileName(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".gz")) {
+                lower = lower.substring(0, lower.length() - 3);
+            }
+            for (Format format : values()) {
+                if (lower.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Returns the number of exported rows
+    public static long export(BookingTableModel.RowSource rows, String[] columns, Path file, Format format, boolean gzip) throws SQLException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = gzip
+                     ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)
+                     : new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writeHeader(writer, columns, format);
+            long[] count = {0};
+            rows.forEach(row -> {
+                try {
+                    writeRow(writer, columns, row, format);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            return count[0];
+        } catch (IOException e) {
+            throw new SQLException("Export fehlgeschlagen: " + e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw new SQLException("Export fehlgeschlagen: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static void writeHeader(Writer writer, String[] columns, Format format) throws IOException {
+        switch (format) {
+            case MARKDOWN -> {
+                for (String column : columns) {
+                    writer.write("| " + column + " ");
+                }
+                writer.write("|\n");
+                for (int i = 0; i < columns.length; i++) {
+                    writer.write("|---");
+                }
+                writer.write("|\n");
+            }
+            case CSV -> {
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) {
+                        writer.write(CSV_DELIMITER);
+                    }
+                    writer.write(csvField(columns[i]));
+                }
+                writer.write('\n');
+            }
+            case JSONL -> {
+                // Every line is a self-describing object
+            }
+        }
+    }
+
+    private static void writeRow(Writer writer, String[] columns, Object[] row, Format format) throws IOException {
+        switch (format) {
+            case MARKDOWN -> {
+                for (Object value : row) {
+                    writer.write("| ");
+                    writer.write(value != null ? value.toString().replace("|", "\\|").replace('\n', ' ') : "");
+                    writer.write(' ');
+                }
+                writer.write("|\n");
+            }
+            case CSV -> {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        writer.write(CSV_DELIMITER);
+                    }
+                    writer.write(row[i] != null ? csvField(row[i].toString()) : "");
+                }
+                writer.write('\n');
+            }
+            case JSONL -> {
+                writer.write('{');
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(jsonString(columns[i].toLowerCase(Locale.ROOT)));
+                    writer.write(':');
+                    Object value = row[i];
+                    if (value == null) {
+                        writer.write("null");
+                    } else if (value instanceof Number) {
+                        writer.write(value.toString());
+                    } else {
+                        writer.write(jsonString(value.toString()));
+                    }
+                }
+                writer.write("}\n");
+            }
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(CSV_DELIMITER) < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
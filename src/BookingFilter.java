@@ -0,0 +1,74 @@
+// src/BookingFilter.java
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Search and date filter of the bookings table, rendered as a parameterized WHERE clause
+public record BookingFilter(String text, LocalDate startDate, LocalDate endDate) {
+    public static final BookingFilter NONE = new BookingFilter("", null, null);
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+
+    public BookingFilter {
+        text = (text == null) ? "" : text;
+    }
+
+    public boolean isEmpty() {
+        return text.isEmpty() && startDate == null && endDate == null;
+    }
+
+    // True if every row matching this filter also matches the previous one, i.e. the date range lies within
+    // the previous range and the search text only extends the previous text. The result can then be narrowed in memory.
+    public boolean narrows(BookingFilter previous) {
+        return (previous.startDate == null || (startDate != null && !startDate.isBefore(previous.startDate)))
+                && (previous.endDate == null || (endDate != null && !endDate.isAfter(previous.endDate)))
+                && normalize(text).contains(normalize(previous.text));
+    }
+
+    // In-memory counterpart of "Info LIKE %text%"
+    public boolean matchesText(String info) {
+        return text.isEmpty() || (info != null && normalize(info).contains(normalize(text)));
+    }
+
+    // Approximates the case and accent insensitive default collation of MariaDB
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Conditions for a query joining Buchungen b and Kategorie k, always starting with "WHERE 1=1"
+    public String whereClause() {
+        StringBuilder sql = new StringBuilder(" WHERE 1=1");
+        if (!text.isEmpty()) {
+            sql.append(" AND b.Info LIKE ?");
+        }
+        if (startDate != null) {
+            sql.append(" AND b.Datum >= ?");
+        }
+        if (endDate != null) {
+            sql.append(" AND b.Datum <= ?");
+        }
+        return sql.toString();
+    }
+
+    // Binds the parameters of whereClause() and returns the next free parameter index
+    public int bind(PreparedStatement pstmt, int index) throws SQLException {
+        if (!text.isEmpty()) {
+            pstmt.setString(index++, "%" + escapeLike(text) + "%");
+        }
+        if (startDate != null) {
+            pstmt.setDate(index++, Date.valueOf(startDate));
+        }
+        if (endDate != null) {
+            pstmt.setDate(index++, Date.valueOf(endDate));
+        }
+        return index;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,84 @@
+// src/BookingRepository.java
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// Storage of the bookings as seen by the GUI. Methods block and are meant to be called through
+// AsyncDataAccess; implementations must allow concurrent calls. open() picks the engine configured
+// in db.engine.
+public interface BookingRepository {
+    // Sort key of the last row before a page; the next page starts strictly after it
+    record PageKey(LocalDate datum, int id) {
+    }
+
+    // New value of one column of one booking
+    record FieldUpdate(int id, BuchungFeld field, String value) {
+        // Error message if the value cannot be stored in the column, null if it can
+        public String error() {
+            try {
+                switch (field) {
+                    case DATUM -> LocalDate.parse(value);
+                    case BETRAG -> Double.parseDouble(value);
+                    case INFO -> {
+                    }
+                    default -> {
+                        return "Spalte kann nicht geändert werden: " + field;
+                    }
+                }
+                return null;
+            } catch (RuntimeException e) {
+                return "Ungültiger Wert: " + value;
+            }
+        }
+    }
+
+    // Row count and sums of a filter, amounts in cents
+    record Summary(int count, long incomeCents, long expenseCents) {
+    }
+
+    interface BookingConsumer {
+        void accept(int id, String info, long cents, TransactionType type, LocalDate date, int categoryId) throws SQLException;
+    }
+
+    // Every call is measured in Metrics
+    static BookingRepository open() {
+        return new MeasuredBookingRepository(JournalRepository.isSelected() ? JournalRepository.instance() : new JdbcBookingRepository());
+    }
+
+    Summary summarize(BookingFilter filter) throws SQLException;
+
+    // All rows of the filter in sort order; expectedRows sizes the store up front
+    BookingStore loadAll(BookingFilter filter, BookingSort sort, int expectedRows) throws SQLException;
+
+    // One page in sort order, after start if given, otherwise after offset rows
+    BookingStore loadPage(BookingFilter filter, BookingSort sort, PageKey start, int offset, int limit) throws SQLException;
+
+    // Rows with the given IDs that match the filter, in no particular order
+    BookingStore loadByIds(int[] ids, BookingFilter filter) throws SQLException;
+
+    // Passes all rows of the filter in sort order without holding them in memory
+    void stream(BookingFilter filter, BookingSort sort, int fetchSize, BookingConsumer consumer) throws SQLException;
+
+    // Returns the ID of the new booking
+    int insert(LocalDate date, String info, double betrag, int categoryId) throws SQLException;
+
+    // Applies all updates atomically except the failing ones; returns an error message per update, null if it succeeded
+    String[] updateAll(List<FieldUpdate> updates) throws SQLException;
+
+    void delete(int id) throws SQLException;
+
+    // Bulk changes of the given bookings, each in one transaction; IDs that no longer exist are skipped.
+    // Returns the number of deleted bookings
+    int deleteAll(int[] ids) throws SQLException;
+
+    void moveToCategory(int[] ids, int categoryId) throws SQLException;
+
+    // Moves the dates by the given number of days, backwards if negative
+    void shiftDates(int[] ids, int days) throws SQLException;
+
+    int countByCategory(int categoryId) throws SQLException;
+
+    // Deletes up to limit bookings of the category in one transaction and returns their IDs; fewer than
+    // limit once the category has no bookings left
+    int[] deleteByCategory(int categoryId, int limit) throws SQLException;
+}
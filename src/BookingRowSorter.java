@@ -0,0 +1,91 @@
+// src/BookingRowSorter.java
+import javax.swing.*;
+import java.util.List;
+
+// Row sorter for the paged bookings table. Rows of pages that are not loaded yet cannot be compared
+// on the client, so a click on a column header only changes the ORDER BY of the model.
+// View and model indices are therefore always identical.
+public class BookingRowSorter extends RowSorter<BookingTableModel> {
+    private final BookingTableModel model;
+
+    public BookingRowSorter(BookingTableModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public BookingTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        BookingSort current = model.getSort();
+        boolean ascending = current.column() != column || !current.ascending();
+        setSort(new BookingSort(column, ascending));
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        if (keys == null || keys.isEmpty()) {
+            setSort(BookingSort.DEFAULT);
+        } else {
+            SortKey key = keys.get(0);
+            setSort(new BookingSort(key.getColumn(), key.getSortOrder() != SortOrder.DESCENDING));
+        }
+    }
+
+    private void setSort(BookingSort sort) {
+        model.setSort(sort);
+        fireSortOrderChanged();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        BookingSort sort = model.getSort();
+        return List.of(new SortKey(sort.column(), sort.ascending() ? SortOrder.ASCENDING : SortOrder.DESCENDING));
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        return index;
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        return index;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+    }
+
+    @Override
+    public void allRowsChanged() {
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+    }
+}
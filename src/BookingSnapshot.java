@@ -0,0 +1,212 @@
+// src/BookingSnapshot.java
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Local copy of all bookings and categories (cache.file), written on exit and read through a memory
+// mapping at the next start, so that the table is filled before the database is even connected.
+// The ChangeLog version it was written at is the high-water mark: only the rows changed since then
+// are fetched afterwards (see DeltaSync.catchUp). A snapshot of another database, one older than
+// sync.keepDays, of another format version or with a wrong checksum is ignored and rewritten on exit.
+//
+// Layout: a fixed header (magic, format, version, time, database, counts, payload length and CRC32),
+// then the categories, then the bookings column by column and the distinct info texts they refer to.
+public class BookingSnapshot {
+    private static final String FILE_NAME = AppConfig.getString("cache.file", "haushaltsbuch.cache");
+    private static final int MAGIC = 0x48424353;
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 52;
+    private static final long MAX_AGE_MILLIS = AppConfig.getInt("sync.keepDays", 7) * 86_400_000L;
+
+    public record Snapshot(long version, List<Category> categories, BookingStore bookings) {
+    }
+
+    // Not used for the journal, which is a local file itself
+    public static boolean isEnabled() {
+        return !FILE_NAME.isEmpty() && !JournalRepository.isSelected();
+    }
+
+    // The snapshot, or null if there is none or it cannot be used
+    public static Snapshot read() {
+        if (!isEnabled() || !Files.isRegularFile(Path.of(FILE_NAME))) {
+            return null;
+        }
+        try (Metrics.Sample sample = Metrics.start("cache.read");
+             FileChannel channel = FileChannel.open(Path.of(FILE_NAME), StandardOpenOption.READ)) {
+            Snapshot snapshot = read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (snapshot != null) {
+                sample.store(snapshot.bookings());
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            // A truncated or damaged file; it is rewritten on exit
+            System.err.println("Lokaler Cache nicht lesbar: " + e);
+            return null;
+        }
+    }
+
+    private static Snapshot read(MappedByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+            return null;
+        }
+        long version = buffer.getLong();
+        long savedAt = buffer.getLong();
+        int database = buffer.getInt();
+        int categoryCount = buffer.getInt();
+        int bookingCount = buffer.getInt();
+        long payloadLength = buffer.getLong();
+        long checksum = buffer.getLong();
+        if (database != DatabaseConnection.url().hashCode() || System.currentTimeMillis() - savedAt > MAX_AGE_MILLIS
+                || HEADER_SIZE + payloadLength != buffer.capacity()) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_SIZE, (int) payloadLength));
+        if (crc.getValue() != checksum) {
+            System.err.println("Lokaler Cache beschädigt, wird neu geschrieben.");
+            return null;
+        }
+
+        List<Category> categories = new ArrayList<>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) {
+            int id = buffer.getInt();
+            TransactionType type = TransactionType.fromValue(buffer.get());
+            String name = readString(buffer);
+            categories.add(new Category(id, name, readString(buffer), type));
+        }
+
+        int[] ids = readInts(buffer, bookingCount);
+        int[] epochDays = readInts(buffer, bookingCount);
+        int[] categoryIds = readInts(buffer, bookingCount);
+        int[] infoRefs = readInts(buffer, bookingCount);
+        long[] cents = new long[bookingCount];
+        buffer.asLongBuffer().get(cents);
+        buffer.position(buffer.position() + bookingCount * 8);
+        byte[] types = new byte[bookingCount];
+        buffer.get(types);
+
+        BookingStore bookings = new BookingStore(bookingCount);
+        // Texts are added in their order, so they get the same references again
+        int textCount = buffer.getInt();
+        byte[] text = new byte[256];
+        for (int ref = 0; ref < textCount; ref++) {
+            int length = buffer.getInt();
+            if (length > text.length) {
+                text = new byte[Math.max(length, text.length * 2)];
+            }
+            buffer.get(text, 0, length);
+            if (bookings.infos().add(text, 0, length) != ref) {
+                throw new IllegalStateException("Doppelter Text im Cache");
+            }
+        }
+        for (int i = 0; i < bookingCount; i++) {
+            bookings.append(ids[i], cents[i], epochDays[i], categoryIds[i], TransactionType.fromValue(types[i]), infoRefs[i]);
+        }
+        return new Snapshot(version, categories, bookings);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Writes all bookings (ordered by Datum, ID) and categories as of the given ChangeLog version; called on exit
+    public static void write(long version, List<Category> categories, BookingStore bookings) {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = Path.of(FILE_NAME);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Metrics.Sample sample = Metrics.start("cache.write")) {
+            sample.store(bookings);
+            // The payload first, behind a placeholder header that is filled in once its length and CRC are known
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.write(new byte[HEADER_SIZE]);
+                DataOutputStream payload = new DataOutputStream(new CheckedOutputStream(out, crc));
+                writePayload(payload, categories, bookings);
+                payload.flush();
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT).putLong(version).putLong(System.currentTimeMillis())
+                    .putInt(DatabaseConnection.url().hashCode()).putInt(categories.size()).putInt(bookings.size())
+                    .putLong(Files.size(temp) - HEADER_SIZE).putLong(crc.getValue()).flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writePayload(DataOutputStream out, List<Category> categories, BookingStore bookings) throws IOException {
+        for (Category category : categories) {
+            out.writeInt(category.id());
+            out.writeByte(category.type().getValue());
+            writeString(out, category.name());
+            writeString(out, category.description());
+        }
+        int size = bookings.size();
+        for (int i = 0; i < size; i++) {
+            out.writeInt(bookings.id(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(bookings.epochDay(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(bookings.categoryId(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(bookings.infoRef(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(bookings.cents(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeByte(bookings.type(i).getValue());
+        }
+        StringPool infos = bookings.infos();
+        out.writeInt(infos.size());
+        for (int ref = 0; ref < infos.size(); ref++) {
+            out.writeInt(infos.byteLength(ref));
+            infos.write(ref, out);
+        }
+    }
+
+    // Length-prefixed UTF-8, length -1 for null; names and descriptions are VARCHAR(255) at most
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
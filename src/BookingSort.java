@@ -0,0 +1,58 @@
+// src/BookingSort.java
+import java.util.function.IntFunction;
+
+// Sort order of the bookings table, pushed down to the database as ORDER BY.
+// ID is always the last sort key so that the order is total and pages are stable.
+public record BookingSort(int column, boolean ascending) {
+    public static final BookingSort DEFAULT = new BookingSort(BookingTableModel.COLUMN_DATUM, true);
+
+    // Only the (Datum, ID) order can be paged with keyset conditions
+    public boolean supportsKeyset() {
+        return column == BookingTableModel.COLUMN_DATUM;
+    }
+
+    public String orderByClause() {
+        String dir = ascending ? " ASC" : " DESC";
+        String keys = switch (column) {
+            case BookingTableModel.COLUMN_INFO -> "b.Info" + dir + ", ";
+            // Rows without an amount in this column (null in the table) come first when ascending
+            case BookingTableModel.COLUMN_EINZAHLUNG -> "(k.Einzahlung_Auszahlung = 1)" + dir + ", b.Betrag" + dir + ", ";
+            case BookingTableModel.COLUMN_AUSZAHLUNG -> "(k.Einzahlung_Auszahlung = 0)" + dir + ", b.Betrag" + dir + ", ";
+            case BookingTableModel.COLUMN_DATUM -> "b.Datum" + dir + ", ";
+            case BookingTableModel.COLUMN_KATEGORIE -> "k.Bezeichnung" + dir + ", ";
+            default -> "";
+        };
+        return " ORDER BY " + keys + "b.ID" + dir;
+    }
+
+    // In-memory counterpart of orderByClause() for two rows of a store; categories looks up a category by ID
+    public int compare(BookingStore store, int a, int b, IntFunction<Category> categories) {
+        int result = switch (column) {
+            case BookingTableModel.COLUMN_INFO -> BookingFilter.normalize(store.info(a)).compareTo(BookingFilter.normalize(store.info(b)));
+            case BookingTableModel.COLUMN_EINZAHLUNG, BookingTableModel.COLUMN_AUSZAHLUNG -> {
+                boolean inColumn = column == BookingTableModel.COLUMN_EINZAHLUNG;
+                int byType = Boolean.compare(store.isIncome(a) == inColumn, store.isIncome(b) == inColumn);
+                yield byType != 0 ? byType : Long.compare(store.cents(a), store.cents(b));
+            }
+            case BookingTableModel.COLUMN_DATUM -> Integer.compare(store.epochDay(a), store.epochDay(b));
+            case BookingTableModel.COLUMN_KATEGORIE -> BookingFilter.normalize(categoryName(categories, store.categoryId(a)))
+                    .compareTo(BookingFilter.normalize(categoryName(categories, store.categoryId(b))));
+            default -> 0;
+        };
+        if (result == 0) {
+            result = Integer.compare(store.id(a), store.id(b));
+        }
+        return ascending ? result : -result;
+    }
+
+    private static String categoryName(IntFunction<Category> categories, int categoryId) {
+        Category category = categories.apply(categoryId);
+        return category != null ? category.name() : "";
+    }
+
+    // Condition selecting the rows after the given (Datum, ID) key; only valid if supportsKeyset()
+    public String keysetCondition() {
+        String op = ascending ? ">" : "<";
+        return " AND (b.Datum " + op + " ? OR (b.Datum = ? AND b.ID " + op + " ?))";
+    }
+}
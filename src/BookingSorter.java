@@ -0,0 +1,174 @@
+// src/BookingSorter.java
+import java.util.function.IntFunction;
+
+// In-memory sorting of store rows in the order of BookingSort.compare, without boxing or comparing
+// strings per row pair. Every row gets one primitive key for the sort column (epoch day, amount in
+// cents grouped by type, or the rank of its category name or info text, ranked once per distinct
+// value); the rows are then merge-sorted by key and booking ID. The keys are held by position in the
+// sorted rows, so a slice of the store needs only arrays of its own size.
+public class BookingSorter {
+    // Moves rows of the other type before (ascending) the rows with an amount in the sorted column
+    private static final long TYPE_OFFSET = 1L << 61;
+    private static final int INSERTION_SORT_LIMIT = 32;
+
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    // All rows of the store in sort order
+    public static int[] sort(BookingStore store, BookingSort sort, IntFunction<Category> categories) {
+        int[] rows = new int[store.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return sort(store, rows, sort, categories);
+    }
+
+    // Sorts the given store rows in place and returns them
+    public static int[] sort(BookingStore store, int[] rows, BookingSort sort, IntFunction<Category> categories) {
+        int count = rows.length;
+        // keys[i] belongs to rows[i]
+        long[] keys = new long[count];
+        switch (sort.column()) {
+            case BookingTableModel.COLUMN_INFO -> {
+                int[] ranks = infoRanks(store.infos());
+                for (int i = 0; i < count; i++) {
+                    keys[i] = ranks[store.infoRef(rows[i])];
+                }
+            }
+            case BookingTableModel.COLUMN_EINZAHLUNG, BookingTableModel.COLUMN_AUSZAHLUNG -> {
+                boolean inColumn = sort.column() == BookingTableModel.COLUMN_EINZAHLUNG;
+                for (int i = 0; i < count; i++) {
+                    keys[i] = store.cents(rows[i]) + (store.isIncome(rows[i]) == inColumn ? TYPE_OFFSET : -TYPE_OFFSET);
+                }
+            }
+            case BookingTableModel.COLUMN_DATUM -> {
+                for (int i = 0; i < count; i++) {
+                    keys[i] = store.epochDay(rows[i]);
+                }
+            }
+            case BookingTableModel.COLUMN_KATEGORIE -> {
+                int[] ranks = categoryRanks(store, rows, categories);
+                for (int i = 0; i < count; i++) {
+                    keys[i] = ranks[store.categoryId(rows[i])];
+                }
+            }
+            default -> {
+            }
+        }
+        // Positions while sorting, then buffer holds a copy of the rows
+        int[] positions = new int[count];
+        int[] buffer = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+            buffer[i] = i;
+        }
+        mergeSort(positions, buffer, 0, count, (a, b) -> {
+            int result = Long.compare(keys[a], keys[b]);
+            return result != 0 ? result : Integer.compare(store.id(rows[a]), store.id(rows[b]));
+        });
+        System.arraycopy(rows, 0, buffer, 0, count);
+        for (int i = 0; i < count; i++) {
+            rows[i] = buffer[positions[i]];
+        }
+        // The ID makes the order total, so descending is the reverse
+        if (!sort.ascending()) {
+            reverse(rows);
+        }
+        return rows;
+    }
+
+    public static void reverse(int[] rows) {
+        for (int i = 0, j = rows.length - 1; i < j; i++, j--) {
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+    }
+
+    // Rank of each pool string by its normalized text; equal texts get the same rank
+    private static int[] infoRanks(StringPool infos) {
+        String[] normalized = new String[infos.size()];
+        int[] refs = new int[normalized.length];
+        for (int ref = 0; ref < refs.length; ref++) {
+            String info = infos.get(ref);
+            normalized[ref] = BookingFilter.normalize(info != null ? info : "");
+            refs[ref] = ref;
+        }
+        return ranks(refs, normalized, normalized.length);
+    }
+
+    // Rank of each category ID occurring in the rows by its normalized name
+    private static int[] categoryRanks(BookingStore store, int[] rows, IntFunction<Category> categories) {
+        int maxId = 0;
+        for (int row : rows) {
+            maxId = Math.max(maxId, store.categoryId(row));
+        }
+        String[] normalized = new String[maxId + 1];
+        int[] ids = new int[maxId + 1];
+        int count = 0;
+        for (int row : rows) {
+            int id = store.categoryId(row);
+            if (normalized[id] == null) {
+                Category category = categories.apply(id);
+                normalized[id] = BookingFilter.normalize(category != null ? category.name() : "");
+                ids[count++] = id;
+            }
+        }
+        int[] present = new int[count];
+        System.arraycopy(ids, 0, present, 0, count);
+        return ranks(present, normalized, normalized.length);
+    }
+
+    private static int[] ranks(int[] values, String[] texts, int size) {
+        mergeSort(values, (a, b) -> texts[a].compareTo(texts[b]));
+        int[] ranks = new int[size];
+        int rank = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0 && !texts[values[i]].equals(texts[values[i - 1]])) {
+                rank++;
+            }
+            ranks[values[i]] = rank;
+        }
+        return ranks;
+    }
+
+    private static void mergeSort(int[] values, RowComparator comparator) {
+        if (values.length > 1) {
+            mergeSort(values, values.clone(), 0, values.length, comparator);
+        }
+    }
+
+    // Sorts values[from, to) using buffer, which holds the same elements in that range
+    private static void mergeSort(int[] values, int[] buffer, int from, int to, RowComparator comparator) {
+        if (to - from <= INSERTION_SORT_LIMIT) {
+            for (int i = from + 1; i < to; i++) {
+                int value = values[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(values[j], value) > 0) {
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                values[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        // Sorts both halves into buffer, then merges them back into values
+        mergeSort(buffer, values, from, mid, comparator);
+        mergeSort(buffer, values, mid, to, comparator);
+        if (comparator.compare(buffer[mid - 1], buffer[mid]) <= 0) {
+            System.arraycopy(buffer, from, values, from, to - from);
+            return;
+        }
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                values[i] = buffer[left++];
+            } else {
+                values[i] = buffer[right++];
+            }
+        }
+    }
+}
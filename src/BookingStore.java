@@ -0,0 +1,172 @@
+// src/BookingStore.java
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// Client-side cache of bookings in columnar form. Every column is a primitive array indexed by
+// row: ID, amount in cents, date as epoch day, category ID and the transaction type as one bit.
+// Info texts live in a StringPool, so about 25 bytes per booking plus each distinct text once.
+// Not thread-safe: filled by one background task, then only used on the EDT.
+public class BookingStore {
+    private int[] ids;
+    private long[] cents;
+    private int[] epochDays;
+    private int[] categoryIds;
+    private int[] infoRefs;
+    // Bit sets, bit = 1 for EINZAHLUNG and for deleted rows
+    private long[] incomeBits;
+    private long[] deletedBits;
+    private int size;
+
+    private final StringPool infos;
+
+    public BookingStore(int initialCapacity) {
+        this(Math.max(16, initialCapacity), new StringPool(Math.max(16, initialCapacity)));
+    }
+
+    private BookingStore(int capacity, StringPool infos) {
+        ids = new int[capacity];
+        cents = new long[capacity];
+        epochDays = new int[capacity];
+        categoryIds = new int[capacity];
+        infoRefs = new int[capacity];
+        incomeBits = new long[(capacity + 63) >>> 6];
+        deletedBits = new long[(capacity + 63) >>> 6];
+        this.infos = infos;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int append(int id, long amountCents, int epochDay, int categoryId, TransactionType type, String info) {
+        return append(id, amountCents, epochDay, categoryId, type, infos.add(info == null ? "" : info));
+    }
+
+    // Appends a row whose info text is already in this store's pool
+    public int append(int id, long amountCents, int epochDay, int categoryId, TransactionType type, int infoRef) {
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size++;
+        ids[row] = id;
+        cents[row] = amountCents;
+        epochDays[row] = epochDay;
+        categoryIds[row] = categoryId;
+        infoRefs[row] = infoRef;
+        setType(row, type);
+        return row;
+    }
+
+    // New store with the given rows in the given order, sharing this store's string pool
+    public BookingStore select(int[] rows) {
+        BookingStore selected = new BookingStore(Math.max(16, rows.length), infos);
+        for (int row : rows) {
+            selected.append(ids[row], cents[row], epochDays[row], categoryIds[row], type(row), infoRefs[row]);
+        }
+        return selected;
+    }
+
+    // Copy of the given rows in the given order with its own string pool, independent of later changes to this store
+    public BookingStore copy(int[] rows) {
+        BookingStore copy = new BookingStore(rows.length);
+        for (int row : rows) {
+            copy.append(ids[row], cents[row], epochDays[row], categoryIds[row], type(row), copy.infos.addFrom(infos, infoRefs[row]));
+        }
+        return copy;
+    }
+
+    public int id(int row) {
+        return ids[row];
+    }
+
+    public long cents(int row) {
+        return cents[row];
+    }
+
+    public int epochDay(int row) {
+        return epochDays[row];
+    }
+
+    public LocalDate date(int row) {
+        return LocalDate.ofEpochDay(epochDays[row]);
+    }
+
+    public int categoryId(int row) {
+        return categoryIds[row];
+    }
+
+    public boolean isIncome(int row) {
+        return (incomeBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public TransactionType type(int row) {
+        return isIncome(row) ? TransactionType.EINZAHLUNG : TransactionType.AUSZAHLUNG;
+    }
+
+    public int infoRef(int row) {
+        return infoRefs[row];
+    }
+
+    public String info(int row) {
+        return infos.get(infoRefs[row]);
+    }
+
+    public StringPool infos() {
+        return infos;
+    }
+
+    public void setInfo(int row, String info) {
+        infoRefs[row] = infos.add(info == null ? "" : info);
+    }
+
+    public void setCents(int row, long amountCents) {
+        cents[row] = amountCents;
+    }
+
+    public void setEpochDay(int row, int epochDay) {
+        epochDays[row] = epochDay;
+    }
+
+    // Deleted rows keep their index so that views on the store stay valid
+    public boolean isDeleted(int row) {
+        return (deletedBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public void markDeleted(int row) {
+        deletedBits[row >>> 6] |= 1L << row;
+    }
+
+    public void setType(int row, TransactionType type) {
+        if (type == TransactionType.EINZAHLUNG) {
+            incomeBits[row >>> 6] |= 1L << row;
+        } else {
+            incomeBits[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    public static long toCents(double betrag) {
+        return Math.round(betrag * 100);
+    }
+
+    public static double toBetrag(long amountCents) {
+        return amountCents / 100.0;
+    }
+
+    // Approximate heap usage of the columns and the string pool in bytes
+    public long memoryBytes() {
+        long columns = 4L * ids.length + 8L * cents.length + 4L * epochDays.length
+                + 4L * categoryIds.length + 4L * infoRefs.length + 8L * incomeBits.length + 8L * deletedBits.length;
+        return columns + infos.memoryBytes();
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        infoRefs = Arrays.copyOf(infoRefs, capacity);
+        incomeBits = Arrays.copyOf(incomeBits, (capacity + 63) >>> 6);
+        deletedBits = Arrays.copyOf(deletedBits, (capacity + 63) >>> 6);
+    }
+}
@@ -0,0 +1,922 @@
+// src/BookingTableModel.java
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.table.AbstractTableModel;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Virtual table model for the bookings table. Rows are kept in columnar BookingStores. If all bookings,
+// or at least the result of the date filter, fit into STORE_LIMIT they are loaded completely and the
+// search text and date ranges within the loaded one are applied in memory as an index view on the store. Larger results are fetched in fixed-size pages (keyset
+// pagination on Datum, ID) and kept in a small LRU cache; rows of a page that has not arrived yet read as null.
+// Search texts are resolved through the InfoIndex once it is ready: in memory for the complete result,
+// and for larger results by loading only the matching IDs. A complete result is re-sorted in memory by
+// BookingSorter, caching the row order per sort until the rows change; paged results are sorted by the database.
+// All loading happens through AsyncDataAccess.
+public class BookingTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+    // Start prefetching the next page once a row in the last quarter of a page is requested
+    private static final int PREFETCH_THRESHOLD = PAGE_SIZE * 3 / 4;
+    private static final String LOAD_CHANNEL = "bookings";
+    private static final int STORE_LIMIT = AppConfig.getInt("search.materializeLimit", 1_000_000);
+    // Above this many index matches, paging through the database is cheaper than loading the rows by ID
+    private static final int INDEX_LOAD_LIMIT = 50_000;
+    private static final int MAX_CACHED_ORDERS = 4;
+
+    static final int COLUMN_ID = 0;
+    static final int COLUMN_INFO = 1;
+    static final int COLUMN_EINZAHLUNG = 2;
+    static final int COLUMN_AUSZAHLUNG = 3;
+    static final int COLUMN_DATUM = 4;
+    static final int COLUMN_KATEGORIE = 5;
+
+    private static final String[] COLUMNS = {
+            BuchungFeld.ID.name(),
+            BuchungFeld.INFO.name(),
+            TransactionType.EINZAHLUNG.name(),
+            TransactionType.AUSZAHLUNG.name(),
+            BuchungFeld.DATUM.name(),
+            KategorieFeld.BEZEICHNUNG.name()
+    };
+
+    public interface RowConsumer {
+        void accept(Object[] row) throws SQLException;
+    }
+
+    public interface RowSource {
+        void forEach(RowConsumer consumer) throws SQLException;
+    }
+
+    // Called on the EDT after a cell was edited in the table
+    public interface EditListener {
+        void edited(int id, int column, Object oldValue, Object newValue);
+    }
+
+    // Either the complete result of loadedFilter (complete, summed up by applyView) or the first page of the full filter
+    private record Snapshot(BookingStore store, boolean complete, BookingFilter loadedFilter, BookingSort loadedSort,
+                            BookingRepository.Summary summary) {
+    }
+
+    private final BookingRepository repository;
+    private final AsyncDataAccess dataAccess;
+    private final CategoryRegistry categories;
+    private final Predicate<LocalDate> editableDate;
+
+    // Only touched on the EDT
+    private final Map<Integer, BookingStore> pages = new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BookingStore> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, BookingRepository.PageKey> pageStarts = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int generation;
+    // Complete result of storeFilter, or null while the model is paged
+    private BookingStore store;
+    private BookingFilter storeFilter;
+    // Sort the store rows are in, or null once rows were changed or appended
+    private BookingSort storeSort;
+    // Store rows in the order of other sorts, dropped when the rows change
+    private final Map<BookingSort, int[]> orders = new LinkedHashMap<>(MAX_CACHED_ORDERS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BookingSort, int[]> eldest) {
+            return size() > MAX_CACHED_ORDERS;
+        }
+    };
+    // All store rows ordered by (Datum, ID), built on first use and dropped when rows are appended
+    private int[] dayIndex;
+    // Store rows shown in the table, in table order: those matching the search text and not deleted
+    private int[] view;
+
+    private BookingFilter filter = BookingFilter.NONE;
+    private BookingSort sort = BookingSort.DEFAULT;
+    private int rowCount;
+    private BookingRepository.Summary summary = new BookingRepository.Summary(0, 0, 0);
+    private EditListener editListener = (id, column, oldValue, newValue) -> {
+    };
+    private final List<Runnable> loadedListeners = new ArrayList<>();
+    // A refresh is loading; changes of other clients arriving meanwhile may be older than its result
+    private boolean refreshing;
+
+    public BookingTableModel(BookingRepository repository, AsyncDataAccess dataAccess, CategoryRegistry categories,
+                             Predicate<LocalDate> editableDate) {
+        this.repository = repository;
+        this.dataAccess = dataAccess;
+        this.categories = categories;
+        this.editableDate = editableDate;
+        // Category names are looked up in the registry, so a rename only needs a repaint
+        categories.addListener(() -> {
+            if (store != null && sort.column() == COLUMN_KATEGORIE) {
+                rowsChanged();
+            }
+            if (rowCount > 0) {
+                fireTableRowsUpdated(0, rowCount - 1);
+            }
+        });
+    }
+
+    // Runs the listener once, after the next loaded result is shown
+    public void whenLoaded(Runnable listener) {
+        loadedListeners.add(listener);
+    }
+
+    public void setEditListener(EditListener editListener) {
+        this.editListener = editListener;
+    }
+
+    public BookingFilter getFilter() {
+        return filter;
+    }
+
+    public void setFilter(BookingFilter filter) {
+        this.filter = filter;
+        if (store != null && filter.narrows(storeFilter)) {
+            // An in-flight load for an older filter must not overwrite the result
+            dataAccess.cancel(LOAD_CHANNEL);
+            refreshing = false;
+            try (Metrics.Sample sample = Metrics.start("table.filter")) {
+                applyView();
+                fireTableDataChanged();
+                sample.rows(rowCount);
+            }
+        } else {
+            refresh();
+        }
+    }
+
+    public BookingSort getSort() {
+        return sort;
+    }
+
+    // Shows all bookings of a local snapshot, ordered by (Datum, ID), until they are brought up to date
+    public void showSnapshot(BookingStore bookings) {
+        filter = BookingFilter.NONE;
+        apply(new Snapshot(bookings, true, BookingFilter.NONE, BookingSort.DEFAULT, null));
+    }
+
+    // Copy of all bookings ordered by (Datum, ID) for a local snapshot; null unless all of them are loaded
+    public BookingStore allBookings() {
+        if (store == null || refreshing || !storeFilter.isEmpty()) {
+            return null;
+        }
+        int[] days = dayIndex();
+        int[] rows = new int[days.length];
+        int count = 0;
+        for (int row : days) {
+            if (!store.isDeleted(row)) {
+                rows[count++] = row;
+            }
+        }
+        return store.copy(Arrays.copyOf(rows, count));
+    }
+
+    // Reloads with the given filter, even if the loaded result could be narrowed in memory
+    public void reload(BookingFilter filter) {
+        this.filter = filter;
+        refresh();
+    }
+
+    // Re-sorts a complete result in memory; a paged one is reloaded in the new order
+    public void setSort(BookingSort sort) {
+        this.sort = sort;
+        if (store == null) {
+            refresh();
+            return;
+        }
+        try (Metrics.Sample sample = Metrics.start("table.sort")) {
+            applyView();
+            fireTableDataChanged();
+            sample.rows(rowCount);
+        }
+    }
+
+    // Row count and sums of the rows currently shown
+    public BookingRepository.Summary getSummary() {
+        return summary;
+    }
+
+    // Reloads in the background. The date filter alone decides whether the result is loaded completely,
+    // so that the search text can be changed in memory afterwards. A newer refresh cancels an older one.
+    // Measured from the request until the result is shown ("table.refresh"); cancelled refreshes are not counted.
+    public void refresh() {
+        BookingFilter loadFilter = filter;
+        BookingSort loadSort = sort;
+        Metrics.Sample sample = Metrics.startAsync("table.refresh");
+        refreshing = true;
+        dataAccess.submit(LOAD_CHANNEL, () -> {
+            BookingFilter dateFilter = new BookingFilter("", loadFilter.startDate(), loadFilter.endDate());
+            BookingRepository.Summary dateSummary = repository.summarize(dateFilter);
+            if (dateSummary.count() <= STORE_LIMIT && !dateFilter.isEmpty()) {
+                // Everything is loaded if it fits, so that other date ranges are filtered in memory as well
+                BookingRepository.Summary allSummary = repository.summarize(BookingFilter.NONE);
+                if (allSummary.count() <= STORE_LIMIT) {
+                    dateFilter = BookingFilter.NONE;
+                    dateSummary = allSummary;
+                }
+            }
+            if (dateSummary.count() <= STORE_LIMIT) {
+                BookingStore complete = repository.loadAll(dateFilter, loadSort, dateSummary.count());
+                return new Snapshot(complete, true, dateFilter, loadSort, dateSummary);
+            }
+            int[] matching = loadFilter.text().isEmpty() ? null : InfoIndex.find(loadFilter.text());
+            if (matching != null && matching.length <= INDEX_LOAD_LIMIT) {
+                BookingStore found = repository.loadByIds(matching, dateFilter);
+                return new Snapshot(found.select(BookingSorter.sort(found, loadSort, categories::byId)), true, loadFilter, loadSort, null);
+            }
+            BookingRepository.Summary pagedSummary = loadFilter.text().isEmpty() ? dateSummary : repository.summarize(loadFilter);
+            BookingStore firstPage = repository.loadPage(loadFilter, loadSort, null, 0, PAGE_SIZE);
+            return new Snapshot(firstPage, false, loadFilter, loadSort, pagedSummary);
+        }, snapshot -> {
+            refreshing = false;
+            sample.store(snapshot.store());
+            apply(snapshot);
+            sample.close();
+        }, e -> {
+            refreshing = false;
+            e.printStackTrace();
+        });
+    }
+
+    private void apply(Snapshot snapshot) {
+        if (!snapshot.complete() && !snapshot.loadedSort().equals(sort)) {
+            // The sort changed in memory while this page was loading
+            refresh();
+            return;
+        }
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        loading.clear();
+        if (snapshot.complete()) {
+            store = snapshot.store();
+            storeFilter = snapshot.loadedFilter();
+            storeSort = snapshot.loadedSort();
+            orders.clear();
+            dayIndex = null;
+            applyView();
+        } else {
+            store = null;
+            storeFilter = null;
+            storeSort = null;
+            orders.clear();
+            dayIndex = null;
+            view = null;
+            rowCount = snapshot.summary().count();
+            summary = snapshot.summary();
+            putPage(0, snapshot.store());
+        }
+        fireTableDataChanged();
+        List<Runnable> loaded = new ArrayList<>(loadedListeners);
+        loadedListeners.clear();
+        loaded.forEach(Runnable::run);
+    }
+
+    // Selects the store rows matching the date range and search text and sums them up. The matching IDs come from the
+    // InfoIndex; until it is ready, each distinct info text of the string pool is matched at most once.
+    private void applyView() {
+        StringPool infos = store.infos();
+        boolean allText = filter.text().isEmpty();
+        BitSet indexed = null;
+        int[] matchingIds = allText ? null : InfoIndex.find(filter.text());
+        if (matchingIds != null) {
+            indexed = new BitSet();
+            for (int id : matchingIds) {
+                indexed.set(id);
+            }
+        }
+        // 0 = not checked yet, 1 = match, 2 = no match
+        byte[] matches = allText || indexed != null ? null : new byte[infos.size()];
+        int firstDay = filter.startDate() != null ? (int) filter.startDate().toEpochDay() : Integer.MIN_VALUE;
+        int lastDay = filter.endDate() != null ? (int) filter.endDate().toEpochDay() : Integer.MAX_VALUE;
+        int[] candidates = candidates(firstDay, lastDay);
+        int[] rows = new int[candidates != null ? candidates.length : store.size()];
+        int count = 0;
+        long income = 0;
+        long expense = 0;
+        for (int k = 0; k < rows.length; k++) {
+            int i = candidates != null ? candidates[k] : k;
+            int day = store.epochDay(i);
+            if (store.isDeleted(i) || day < firstDay || day > lastDay) {
+                continue;
+            }
+            if (indexed != null) {
+                if (!indexed.get(store.id(i))) {
+                    continue;
+                }
+            } else if (!allText) {
+                int ref = store.infoRef(i);
+                if (matches[ref] == 0) {
+                    matches[ref] = filter.matchesText(infos.get(ref)) ? (byte) 1 : (byte) 2;
+                }
+                if (matches[ref] != 1) {
+                    continue;
+                }
+            }
+            rows[count++] = i;
+            if (store.isIncome(i)) {
+                income += store.cents(i);
+            } else {
+                expense += store.cents(i);
+            }
+        }
+        view = count == rows.length ? rows : Arrays.copyOf(rows, count);
+        rowCount = count;
+        summary = new BookingRepository.Summary(rowCount, income, expense);
+    }
+
+    // Store rows to check in table order, or null for all rows in store order. A date range is resolved to
+    // a contiguous slice of the day index by binary search; a large slice of another sort is not worth
+    // sorting separately, so then all rows are checked in sort order and the others skipped by their day.
+    private int[] candidates(int firstDay, int lastDay) {
+        if (firstDay == Integer.MIN_VALUE && lastDay == Integer.MAX_VALUE) {
+            return order();
+        }
+        int[] days = dayIndex();
+        int from = firstOnOrAfter(days, firstDay);
+        int to = lastDay == Integer.MAX_VALUE ? days.length : firstOnOrAfter(days, lastDay + 1);
+        if (sort.column() == COLUMN_DATUM) {
+            int[] slice = Arrays.copyOfRange(days, from, to);
+            if (!sort.ascending()) {
+                BookingSorter.reverse(slice);
+            }
+            return slice;
+        }
+        if ((to - from) * 4L < days.length) {
+            return BookingSorter.sort(store, Arrays.copyOfRange(days, from, to), sort, categories::byId);
+        }
+        return order();
+    }
+
+    private int[] dayIndex() {
+        if (dayIndex == null) {
+            dayIndex = BookingSorter.sort(store, BookingSort.DEFAULT, categories::byId);
+        }
+        return dayIndex;
+    }
+
+    // First position of the day index whose row is on or after the given day
+    private int firstOnOrAfter(int[] days, int day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.epochDay(days[mid]) < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Store rows in the current sort order, or null if the store itself is in that order
+    private int[] order() {
+        if (sort.equals(storeSort)) {
+            return null;
+        }
+        return orders.computeIfAbsent(sort, order -> BookingSorter.sort(store, order, categories::byId));
+    }
+
+    // The cached orders no longer match the store
+    private void rowsChanged() {
+        storeSort = null;
+        orders.clear();
+    }
+
+    // Shows a booking that was just inserted. With the complete result in memory the row is placed at
+    // its sort position; while paged, the cached pages are dropped and only the visible ones reload.
+    public void addBooking(int id, LocalDate date, String info, double betrag, Category category) {
+        try (Metrics.Sample sample = Metrics.start("table.addBooking")) {
+            sample.rows(1);
+            showBooking(id, date, info, betrag, category);
+        }
+    }
+
+    private void showBooking(int id, LocalDate date, String info, double betrag, Category category) {
+        long cents = BookingStore.toCents(betrag);
+        if (store != null) {
+            if (!inDateRange(storeFilter, date)) {
+                return;
+            }
+            int storeRow = store.append(id, cents, (int) date.toEpochDay(), category.id(), category.type(), info);
+            rowsChanged();
+            dayIndex = null;
+            if (!inDateRange(filter, date) || !filter.matchesText(info)) {
+                return;
+            }
+            // First position whose row sorts after the new one
+            int low = 0;
+            int high = rowCount;
+            IntFunction<Category> byId = categories::byId;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sort.compare(store, view[mid], storeRow, byId) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int[] rows = new int[rowCount + 1];
+            System.arraycopy(view, 0, rows, 0, low);
+            rows[low] = storeRow;
+            System.arraycopy(view, low, rows, low + 1, rowCount - low);
+            view = rows;
+            rowCount++;
+            summary = addToSummary(summary, 1, category.type(), cents);
+            fireTableRowsInserted(low, low);
+        } else if (inDateRange(filter, date) && filter.matchesText(info)) {
+            summary = addToSummary(summary, 1, category.type(), cents);
+            rowCount = summary.count();
+            invalidatePages();
+        }
+    }
+
+    // Removes a deleted booking; hintRow is the table row it was shown in when the delete started
+    public void removeBooking(int id, int hintRow) {
+        int row = hintRow;
+        if (storeFor(row) == null || storeFor(row).id(indexFor(row)) != id) {
+            row = findRow(id);
+        }
+        if (store != null) {
+            if (row < 0) {
+                return;
+            }
+            int storeRow = view[row];
+            store.markDeleted(storeRow);
+            System.arraycopy(view, row + 1, view, row, rowCount - row - 1);
+            rowCount--;
+            summary = addToSummary(summary, -1, store.type(storeRow), -store.cents(storeRow));
+            fireTableRowsDeleted(row, row);
+        } else if (row >= 0) {
+            BookingStore page = storeFor(row);
+            int index = indexFor(row);
+            summary = addToSummary(summary, -1, page.type(index), -page.cents(index));
+            rowCount = summary.count();
+            invalidatePages();
+        } else {
+            // Not in a cached page, so its amount is unknown
+            refresh();
+        }
+    }
+
+    // Applies bookings changed elsewhere, e.g. by another client: their current rows and the IDs of deleted ones.
+    // A complete result is updated in memory; a paged one, or one still loading, is reloaded.
+    public void applyChanges(BookingStore changed, int[] deletedIds) {
+        if (store == null || refreshing) {
+            refresh();
+            return;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < changed.size(); i++) {
+            ids.add(changed.id(i));
+        }
+        for (int id : deletedIds) {
+            ids.add(id);
+        }
+        for (int i = 0; i < store.size(); i++) {
+            if (!store.isDeleted(i) && ids.contains(store.id(i))) {
+                store.markDeleted(i);
+            }
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            if (inDateRange(storeFilter, changed.date(i)) && storeFilter.matchesText(changed.info(i))) {
+                store.append(changed.id(i), changed.cents(i), changed.epochDay(i), changed.categoryId(i), changed.type(i), changed.info(i));
+            }
+        }
+        rowsChanged();
+        dayIndex = null;
+        applyView();
+        fireTableDataChanged();
+    }
+
+    // Shows bookings that were moved to another category, in one step and without a reload
+    public void bookingsMoved(int[] ids, Category category) {
+        changeRows(ids, (changed, i) -> changed.append(store.id(i), store.cents(i), store.epochDay(i),
+                category.id(), category.type(), store.info(i)));
+    }
+
+    // Shows bookings whose dates were moved by the given number of days
+    public void bookingsShifted(int[] ids, int days) {
+        changeRows(ids, (changed, i) -> changed.append(store.id(i), store.cents(i), store.epochDay(i) + days,
+                store.categoryId(i), store.type(i), store.info(i)));
+    }
+
+    private interface RowChange {
+        void append(BookingStore changed, int storeRow);
+    }
+
+    // Collects the changed rows of the given bookings and applies them like changes of another client
+    private void changeRows(int[] ids, RowChange change) {
+        if (store == null || refreshing) {
+            refresh();
+            return;
+        }
+        Set<Integer> wanted = new HashSet<>();
+        for (int id : ids) {
+            wanted.add(id);
+        }
+        BookingStore changed = new BookingStore(ids.length);
+        for (int i = 0; i < store.size(); i++) {
+            if (!store.isDeleted(i) && wanted.contains(store.id(i))) {
+                change.append(changed, i);
+            }
+        }
+        applyChanges(changed, new int[0]);
+    }
+
+    // Applies a changed category type to the loaded rows without a reload
+    public void categoryTypeChanged(Category category) {
+        if (store == null) {
+            refresh();
+            return;
+        }
+        for (int i = 0; i < store.size(); i++) {
+            if (store.categoryId(i) == category.id()) {
+                store.setType(i, category.type());
+            }
+        }
+        rowsChanged();
+        applyView();
+        fireTableDataChanged();
+    }
+
+    // Table row of the booking with the given ID among the loaded rows, or -1
+    public int findRow(int id) {
+        if (store != null) {
+            for (int row = 0; row < rowCount; row++) {
+                if (store.id(view[row]) == id) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+        for (Map.Entry<Integer, BookingStore> entry : pages.entrySet()) {
+            BookingStore page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.id(i) == id) {
+                    return entry.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void invalidatePages() {
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        loading.clear();
+        fireTableDataChanged();
+    }
+
+    private static boolean inDateRange(BookingFilter range, LocalDate date) {
+        return (range.startDate() == null || !date.isBefore(range.startDate()))
+                && (range.endDate() == null || !date.isAfter(range.endDate()));
+    }
+
+    private static BookingRepository.Summary addToSummary(BookingRepository.Summary summary, int rows, TransactionType type, long cents) {
+        return type == TransactionType.EINZAHLUNG
+                ? new BookingRepository.Summary(summary.count() + rows, summary.incomeCents() + cents, summary.expenseCents())
+                : new BookingRepository.Summary(summary.count() + rows, summary.incomeCents(), summary.expenseCents() + cents);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        BookingStore rows = storeFor(row);
+        if (rows == null) {
+            return false;
+        }
+        int index = indexFor(row);
+        boolean editableColumn = column == COLUMN_INFO
+                || (column == COLUMN_EINZAHLUNG && rows.isIncome(index))
+                || (column == COLUMN_AUSZAHLUNG && !rows.isIncome(index));
+        return editableColumn && editableDate.test(rows.date(index));
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        BookingStore rows = storeFor(row);
+        return rows != null ? valueAt(rows, indexFor(row), column) : null;
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        BookingStore rows = storeFor(row);
+        if (rows == null || value == null) {
+            return;
+        }
+        int index = indexFor(row);
+        Object oldValue = valueAt(rows, index, column);
+        if (!storeValue(rows, index, column, value)) {
+            UIManager.getLookAndFeel().provideErrorFeedback(null);
+            return;
+        }
+        fireTableCellUpdated(row, column);
+        editListener.edited(rows.id(index), column, oldValue, valueAt(rows, index, column));
+    }
+
+    // Puts a value back after its edit could not be saved; does not notify the edit listener
+    public void restoreValue(int id, int column, Object value) {
+        int row = findRow(id);
+        BookingStore rows = storeFor(row);
+        if (rows != null && value != null && storeValue(rows, indexFor(row), column, value)) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    // Writes an edited value into the store; false if it is not valid for the column
+    private boolean storeValue(BookingStore rows, int index, int column, Object value) {
+        switch (column) {
+            case COLUMN_INFO -> {
+                // The index follows the edited text right away, like the store does
+                rows.setInfo(index, value.toString());
+                InfoIndex.put(rows.id(index), value.toString());
+            }
+            case COLUMN_EINZAHLUNG, COLUMN_AUSZAHLUNG -> {
+                long cents;
+                try {
+                    cents = BookingStore.toCents(Double.parseDouble(value.toString().trim().replace(',', '.')));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                summary = addToSummary(summary, 0, rows.type(index), cents - rows.cents(index));
+                rows.setCents(index, cents);
+            }
+            default -> {
+                return false;
+            }
+        }
+        if (rows == store) {
+            rowsChanged();
+        }
+        return true;
+    }
+
+    // -1 while the page of the row is not loaded
+    public int getIdAt(int row) {
+        BookingStore rows = storeFor(row);
+        return rows != null ? rows.id(indexFor(row)) : -1;
+    }
+
+    public int getCategoryIdAt(int row) {
+        BookingStore rows = storeFor(row);
+        return rows != null ? rows.categoryId(indexFor(row)) : -1;
+    }
+
+    // Selected table rows on consecutive pages that are not loaded; first and last are page indexes
+    private record PageRun(int first, int last, BookingRepository.PageKey start, List<Integer> rows) {
+    }
+
+    // Copies the bookings shown in the given table rows, e.g. a selection, and passes them to onLoaded
+    // on the EDT. Rows on pages that are not loaded (after Ctrl+A or a shift-click over a long range)
+    // are read in the background, one query per run of consecutive missing pages, starting at the
+    // keyset of its first page like requestPage. If the table is reloaded meanwhile, onError is called.
+    public void loadRows(int[] rows, Consumer<BookingStore> onLoaded, Consumer<Exception> onError) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        if (store != null) {
+            int[] storeRows = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                storeRows[i] = view[sorted[i]];
+            }
+            onLoaded.accept(store.copy(storeRows));
+            return;
+        }
+        BookingStore loaded = new BookingStore(sorted.length);
+        Map<Integer, List<Integer>> missing = new TreeMap<>();
+        for (int row : sorted) {
+            BookingStore page = pages.get(row / PAGE_SIZE);
+            if (page != null && row % PAGE_SIZE < page.size()) {
+                copyRow(page, row % PAGE_SIZE, loaded);
+            } else {
+                missing.computeIfAbsent(row / PAGE_SIZE, pageIndex -> new ArrayList<>()).add(row);
+            }
+        }
+        if (missing.isEmpty()) {
+            onLoaded.accept(loaded);
+            return;
+        }
+        List<PageRun> runs = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> entry : missing.entrySet()) {
+            int pageIndex = entry.getKey();
+            PageRun run = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (run != null && pageIndex == run.last() + 1) {
+                run = new PageRun(run.first(), pageIndex, run.start(), run.rows());
+                runs.set(runs.size() - 1, run);
+            } else {
+                run = new PageRun(pageIndex, pageIndex, pageStarts.get(pageIndex), new ArrayList<>());
+                runs.add(run);
+            }
+            run.rows().addAll(entry.getValue());
+        }
+        int gen = generation;
+        BookingFilter loadFilter = filter;
+        BookingSort loadSort = sort;
+        dataAccess.submit(() -> {
+            for (PageRun pageRun : runs) {
+                int offset = pageRun.first() * PAGE_SIZE;
+                BookingStore page = repository.loadPage(loadFilter, loadSort, pageRun.start(), offset,
+                        (pageRun.last() - pageRun.first() + 1) * PAGE_SIZE);
+                for (int row : pageRun.rows()) {
+                    if (row - offset < page.size()) {
+                        copyRow(page, row - offset, loaded);
+                    }
+                }
+            }
+            return loaded;
+        }, result -> {
+            if (gen != generation) {
+                onError.accept(new IllegalStateException("Die Tabelle wurde inzwischen neu geladen."));
+                return;
+            }
+            onLoaded.accept(result);
+        }, onError);
+    }
+
+    private static void copyRow(BookingStore from, int index, BookingStore to) {
+        to.append(from.id(index), from.cents(index), from.epochDay(index), from.categoryId(index), from.type(index), from.info(index));
+    }
+
+    // Captures the rows of the current filter and sort order on the EDT. The returned source is read
+    // on a background thread: from the in-memory store, or streamed from a database cursor while paged.
+    public RowSource rows() {
+        if (store != null) {
+            // Only the store rows of the shown order are captured. The EDT keeps changing the store while the
+            // export runs, so the values are read on the EDT one page at a time; rows deleted since are skipped.
+            BookingStore shown = store;
+            int[] order = Arrays.copyOf(view, rowCount);
+            return consumer -> {
+                for (int start = 0; start < order.length; start += PAGE_SIZE) {
+                    int from = start;
+                    int to = Math.min(from + PAGE_SIZE, order.length);
+                    for (Object[] values : onEdt(() -> pageValues(shown, order, from, to))) {
+                        consumer.accept(values);
+                    }
+                }
+            };
+        }
+        BookingFilter exportFilter = filter;
+        BookingSort exportSort = sort;
+        return consumer -> repository.stream(exportFilter, exportSort, PAGE_SIZE,
+                (id, info, cents, type, date, categoryId) -> consumer.accept(values(id, info, cents, type, date, categoryId)));
+    }
+
+    private List<Object[]> pageValues(BookingStore rows, int[] order, int from, int to) {
+        List<Object[]> values = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            if (!rows.isDeleted(order[i])) {
+                values.add(valuesAt(rows, order[i]));
+            }
+        }
+        return values;
+    }
+
+    private static <T> T onEdt(Supplier<T> supplier) throws SQLException {
+        if (SwingUtilities.isEventDispatchThread()) {
+            return supplier.get();
+        }
+        List<T> result = new ArrayList<>(1);
+        try {
+            SwingUtilities.invokeAndWait(() -> result.add(supplier.get()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Export unterbrochen.", e);
+        } catch (InvocationTargetException e) {
+            throw new SQLException("Zeilen konnten nicht gelesen werden.", e.getCause());
+        }
+        return result.get(0);
+    }
+
+    // Store holding the given table row, or null if its page is not loaded yet
+    private BookingStore storeFor(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (store != null) {
+            return store;
+        }
+        int pageIndex = row / PAGE_SIZE;
+        BookingStore page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        if (row % PAGE_SIZE >= PREFETCH_THRESHOLD) {
+            requestPage(pageIndex + 1);
+        }
+        return row % PAGE_SIZE < page.size() ? page : null;
+    }
+
+    // Index of the given table row within the store returned by storeFor
+    private int indexFor(int row) {
+        if (store != null) {
+            return view[row];
+        }
+        return row % PAGE_SIZE;
+    }
+
+    private void requestPage(int pageIndex) {
+        if (pageIndex * PAGE_SIZE >= rowCount || pages.containsKey(pageIndex) || !loading.add(pageIndex)) {
+            return;
+        }
+        int gen = generation;
+        BookingFilter loadFilter = filter;
+        BookingSort loadSort = sort;
+        // Keyset if the previous page is known, offset otherwise (e.g. after dragging the scrollbar)
+        BookingRepository.PageKey start = pageStarts.get(pageIndex);
+        dataAccess.submit(() -> repository.loadPage(loadFilter, loadSort, start, pageIndex * PAGE_SIZE, PAGE_SIZE), page -> {
+            if (gen != generation) {
+                return;
+            }
+            loading.remove(pageIndex);
+            putPage(pageIndex, page);
+            int first = pageIndex * PAGE_SIZE;
+            fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, rowCount) - 1);
+        }, e -> {
+            if (gen == generation) {
+                loading.remove(pageIndex);
+            }
+            e.printStackTrace();
+        });
+    }
+
+    private void putPage(int pageIndex, BookingStore page) {
+        pages.put(pageIndex, page);
+        if (page.size() == PAGE_SIZE) {
+            pageStarts.put(pageIndex + 1, lastKey(page));
+        }
+    }
+
+    private static BookingRepository.PageKey lastKey(BookingStore page) {
+        int last = page.size() - 1;
+        return new BookingRepository.PageKey(page.date(last), page.id(last));
+    }
+
+    private Object valueAt(BookingStore rows, int index, int column) {
+        return switch (column) {
+            case COLUMN_ID -> rows.id(index);
+            case COLUMN_INFO -> rows.info(index);
+            case COLUMN_EINZAHLUNG -> rows.isIncome(index) ? BookingStore.toBetrag(rows.cents(index)) : null;
+            case COLUMN_AUSZAHLUNG -> rows.isIncome(index) ? null : BookingStore.toBetrag(rows.cents(index));
+            case COLUMN_DATUM -> rows.date(index);
+            case COLUMN_KATEGORIE -> {
+                Category category = categories.byId(rows.categoryId(index));
+                yield category != null ? category.name() : null;
+            }
+            default -> null;
+        };
+    }
+
+    private Object[] valuesAt(BookingStore rows, int index) {
+        Object[] values = new Object[COLUMNS.length];
+        for (int column = 0; column < COLUMNS.length; column++) {
+            values[column] = valueAt(rows, index, column);
+        }
+        return values;
+    }
+
+    private Object[] values(int id, String info, long cents, TransactionType type, LocalDate date, int categoryId) {
+        Double betrag = BookingStore.toBetrag(cents);
+        Category category = categories.byId(categoryId);
+        return new Object[]{
+                id,
+                info,
+                type == TransactionType.EINZAHLUNG ? betrag : null,
+                type == TransactionType.EINZAHLUNG ? null : betrag,
+                date,
+                category != null ? category.name() : null
+        };
+    }
+}
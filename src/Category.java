@@ -0,0 +1,8 @@
+// src/Category.java
+// One row of the Kategorie table
+public record Category(int id, String name, String description, TransactionType type) {
+    // Label shown in the category dropdown, e.g. "Miete (A)"
+    public String label() {
+        return name + (type == TransactionType.EINZAHLUNG ? " (E)" : " (A)");
+    }
+}
@@ -0,0 +1,50 @@
+// src/CategoryDeleter.java
+import java.sql.SQLException;
+
+// Deletes a category together with its bookings. The bookings are deleted in chunks of
+// category.deleteChunk rows, each in its own short transaction with its monthly rollup delta and change
+// log entries, so that the row locks of the bookings are never held all at once. The category itself
+// is deleted at the end, atomically with the check that no booking refers to it any more; bookings
+// added by another client in the meantime are deleted in a further chunk.
+// A cancelled or failed delete stops after the last committed chunk and keeps the category.
+public class CategoryDeleter {
+    private static final int CHUNK_SIZE = AppConfig.getInt("category.deleteChunk", 500);
+
+    public interface ProgressListener {
+        void progress(Progress progress);
+    }
+
+    // deletedIds: the bookings of the last chunk
+    public record Progress(int deleted, int total, int[] deletedIds) {
+    }
+
+    private final BookingRepository repository;
+    private final CategoryRegistry categories;
+    private volatile boolean cancelled;
+
+    public CategoryDeleter(BookingRepository repository, CategoryRegistry categories) {
+        this.repository = repository;
+        this.categories = categories;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Blocking, meant to be called through AsyncDataAccess; returns whether the category was deleted
+    public boolean delete(int categoryId, ProgressListener listener) throws SQLException {
+        int total = repository.countByCategory(categoryId);
+        int deleted = 0;
+        while (!cancelled) {
+            int[] ids = repository.deleteByCategory(categoryId, CHUNK_SIZE);
+            deleted += ids.length;
+            if (ids.length > 0) {
+                listener.progress(new Progress(deleted, Math.max(total, deleted), ids));
+            }
+            if (ids.length < CHUNK_SIZE && categories.delete(categoryId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+// src/CategoryRegistry.java
+import javax.swing.SwingUtilities;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-process dictionary of all categories, loaded once and then kept up to date by its own
+// insert, update and delete methods. Lookups never touch the database and are safe on any thread;
+// the maps are replaced as a whole on every change. Listeners are notified on the EDT.
+// The categories are stored through a CategoryRepository.
+public class CategoryRegistry {
+    private volatile Map<Integer, Category> byId = Map.of();
+    private volatile Map<String, Category> byLabel = Map.of();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final CategoryRepository repository;
+
+    public CategoryRegistry(CategoryRepository repository) {
+        this.repository = repository;
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    // Blocking, meant to be called through AsyncDataAccess
+    public void load() throws SQLException {
+        Map<Integer, Category> loaded = new HashMap<>();
+        try (Metrics.Sample sample = Metrics.start("categories.load")) {
+            for (Category category : repository.loadAll()) {
+                loaded.put(category.id(), category);
+            }
+            sample.rows(loaded.size());
+        }
+        replace(loaded);
+    }
+
+    // Takes the categories of a local snapshot until they are loaded from the database
+    public void restore(List<Category> categories) {
+        Map<Integer, Category> restored = new HashMap<>();
+        for (Category category : categories) {
+            restored.put(category.id(), category);
+        }
+        replace(restored);
+    }
+
+    public Category byId(int id) {
+        return byId.get(id);
+    }
+
+    // Looks up a dropdown label such as "Miete (A)"
+    public Category byLabel(String label) {
+        return label != null ? byLabel.get(label) : null;
+    }
+
+    public Category byName(String name, TransactionType type) {
+        return byLabel.get(new Category(0, name, null, type).label());
+    }
+
+    public boolean exists(String name, TransactionType type) {
+        return byName(name, type) != null;
+    }
+
+    // All categories ordered by ID
+    public List<Category> all() {
+        List<Category> categories = new ArrayList<>(byId.values());
+        categories.sort((a, b) -> Integer.compare(a.id(), b.id()));
+        return Collections.unmodifiableList(categories);
+    }
+
+    public Category insert(String name, String description, TransactionType type) throws SQLException {
+        Category category;
+        try (Metrics.Sample sample = Metrics.start("categories.insert")) {
+            sample.rows(1);
+            category = repository.insert(name, description, type);
+        }
+        put(category);
+        return category;
+    }
+
+    public void update(Category category) throws SQLException {
+        Category previous = byId(category.id());
+        try (Metrics.Sample sample = Metrics.start("categories.update")) {
+            sample.rows(1);
+            repository.update(category, previous == null || previous.type() != category.type());
+        }
+        put(category);
+    }
+
+    // Returns false and keeps the category if bookings still refer to it
+    public boolean delete(int id) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("categories.delete")) {
+            sample.rows(1);
+            if (!repository.delete(id)) {
+                return false;
+            }
+        }
+        synchronized (this) {
+            Map<Integer, Category> changed = new HashMap<>(byId);
+            changed.remove(id);
+            replace(changed);
+        }
+        return true;
+    }
+
+    private synchronized void put(Category category) {
+        Map<Integer, Category> changed = new HashMap<>(byId);
+        changed.put(category.id(), category);
+        replace(changed);
+    }
+
+    private synchronized void replace(Map<Integer, Category> categories) {
+        Map<String, Category> labels = new HashMap<>();
+        for (Category category : categories.values()) {
+            labels.put(category.label(), category);
+        }
+        byId = Map.copyOf(categories);
+        byLabel = Map.copyOf(labels);
+        SwingUtilities.invokeLater(() -> listeners.forEach(Runnable::run));
+    }
+}
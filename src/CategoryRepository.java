@@ -0,0 +1,21 @@
+// src/CategoryRepository.java
+import java.sql.SQLException;
+import java.util.List;
+
+// Storage of the categories behind CategoryRegistry. open() picks the engine configured in db.engine.
+public interface CategoryRepository {
+    static CategoryRepository open() {
+        return JournalRepository.isSelected() ? JournalRepository.instance().categories() : new JdbcCategoryRepository();
+    }
+
+    List<Category> loadAll() throws SQLException;
+
+    // Returns the stored category with its new ID
+    Category insert(String name, String description, TransactionType type) throws SQLException;
+
+    // typeChanged: the bookings of the category move to the other side
+    void update(Category category, boolean typeChanged) throws SQLException;
+
+    // Deletes the category unless bookings still refer to it; returns whether it was deleted
+    boolean delete(int id) throws SQLException;
+}
@@ -0,0 +1,125 @@
+// src/ChangeLog.java
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Log of the changed rows of Buchungen and Kategorie (table Aenderung), so that several clients on one
+// database can keep up with each other's changes (see DeltaSync). Every write appends the IDs it
+// changed in its own transaction; the auto-increment Version orders the entries. Entries with ID 0
+// stand for changes that were not logged row by row, e.g. a CSV import. The table is created by SchemaManager.
+public class ChangeLog {
+    public static final char BOOKINGS = 'B';
+    public static final char CATEGORIES = 'K';
+    // Marks the entries written by this process, whose changes are already shown
+    public static final String CLIENT = UUID.randomUUID().toString();
+    private static final String INSERT = "INSERT INTO Aenderung (Tabelle, ID, Client) VALUES (?, ?, ?)";
+
+    public record Entry(long version, char table, int id, boolean own) {
+    }
+
+    public static void booking(Connection conn, int id) throws SQLException {
+        bookings(conn, List.of(id));
+    }
+
+    public static void bookings(Connection conn, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+            for (int id : ids) {
+                bind(pstmt, BOOKINGS, id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Any number of bookings changed; other clients reload them all
+    public static void allBookings(Connection conn) throws SQLException {
+        booking(conn, 0);
+    }
+
+    public static void category(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+            bind(pstmt, CATEGORIES, id);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, char table, int id) throws SQLException {
+        pstmt.setString(1, String.valueOf(table));
+        pstmt.setInt(2, id);
+        pstmt.setString(3, CLIENT);
+    }
+
+    // Newest version, 0 if the log is empty
+    public static long currentVersion() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(Version), 0) FROM Aenderung")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Oldest version still in the log, 0 if the log is empty
+    public static long oldestVersion() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MIN(Version), 0) FROM Aenderung")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Up to limit entries after the given version, oldest first; a range scan on the primary key
+    public static List<Entry> since(long version, int limit) throws SQLException {
+        String sql = "SELECT Version, Tabelle, ID, Client FROM Aenderung WHERE Version > ? ORDER BY Version LIMIT ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, version);
+            pstmt.setInt(2, limit);
+            List<Entry> entries = new ArrayList<>();
+            read(pstmt, entries);
+            return entries;
+        }
+    }
+
+    // The entries with the given versions that exist by now, e.g. of a transaction that committed late
+    public static List<Entry> find(Collection<Long> versions) throws SQLException {
+        List<Long> remaining = new ArrayList<>(versions);
+        List<Entry> entries = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int start = 0; start < remaining.size(); start += 500) {
+                List<Long> part = remaining.subList(start, Math.min(start + 500, remaining.size()));
+                String sql = "SELECT Version, Tabelle, ID, Client FROM Aenderung WHERE Version IN ("
+                        + "?, ".repeat(part.size() - 1) + "?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < part.size(); i++) {
+                        pstmt.setLong(i + 1, part.get(i));
+                    }
+                    read(pstmt, entries);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void read(PreparedStatement pstmt, List<Entry> entries) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new Entry(rs.getLong("Version"), rs.getString("Tabelle").charAt(0), rs.getInt("ID"),
+                        CLIENT.equals(rs.getString("Client"))));
+            }
+        }
+    }
+
+    // Removes entries older than the given number of days
+    public static int prune(int days) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM Aenderung WHERE Zeit < ?")) {
+            pstmt.setTimestamp(1, new Timestamp(System.currentTimeMillis() - days * 86_400_000L));
+            return pstmt.executeUpdate();
+        }
+    }
+}
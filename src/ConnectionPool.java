@@ -0,0 +1,315 @@
+// src/ConnectionPool.java
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Small fixed-size pool of JDBC connections. Borrowed connections are proxies: close() hands the
+// connection back, and prepareStatement(sql) is served from a per-connection StatementCache whose
+// statements are only cleared, not closed, when the caller closes them.
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int statementCacheSize;
+    private final long validateAfterMillis;
+    private final long borrowTimeoutMillis;
+    private final Semaphore permits;
+    // Most recently returned connection first, so that the warm connections are reused
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int statementCacheSize,
+                          long validateAfterMillis, long borrowTimeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.statementCacheSize = statementCacheSize;
+        this.validateAfterMillis = validateAfterMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Verbindungspool ist geschlossen.");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Keine freie Datenbankverbindung nach " + borrowTimeoutMillis + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Warten auf Datenbankverbindung unterbrochen.", e);
+        }
+        try {
+            PooledConnection pooled = takeHealthyIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+            }
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            idle.forEach(PooledConnection::closePhysically);
+            idle.clear();
+        }
+    }
+
+    private PooledConnection takeHealthyIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null || pooled.isHealthy()) {
+                return pooled;
+            }
+            pooled.closePhysically();
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.broken) {
+                pooled.closePhysically();
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection real;
+        private final StatementCache statements;
+        private long lastUsed = System.currentTimeMillis();
+        private boolean broken;
+
+        PooledConnection(Connection real) {
+            this.real = real;
+            this.statements = new StatementCache(statementCacheSize);
+        }
+
+        // Connections idle for longer than validateAfterMillis are checked with a round trip
+        boolean isHealthy() {
+            try {
+                if (System.currentTimeMillis() - lastUsed < validateAfterMillis) {
+                    return !real.isClosed();
+                }
+                return real.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection lease() {
+            Lease lease = new Lease(this);
+            lease.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, lease);
+            return lease.proxy;
+        }
+
+        void closePhysically() {
+            statements.close();
+            try {
+                real.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // One borrow of a pooled connection; all statements opened through it are closed when it ends
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final List<StatementHandle> statements = new ArrayList<>();
+        private Connection proxy;
+        private boolean closed;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    end();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.real;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Verbindung wurde bereits an den Pool zurückgegeben.");
+            }
+
+            if (method.getName().equals("prepareStatement") && isCacheable(args)) {
+                String key = args.length == 1 ? (String) args[0] : args[0] + "#" + args[1];
+                PreparedStatement cached = pooled.statements.acquire(key, () -> args.length == 1
+                        ? pooled.real.prepareStatement((String) args[0])
+                        : pooled.real.prepareStatement((String) args[0], (int) args[1]));
+                // The same SQL may be prepared twice before the first one is closed
+                if (cached != null) {
+                    return wrap(method.getReturnType(), cached, true);
+                }
+            }
+
+            Object result = call(pooled.real, method, args);
+            if (result instanceof Statement stmt) {
+                return wrap(method.getReturnType(), stmt, false);
+            }
+            return result;
+        }
+
+        private boolean isCacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+
+        private Object wrap(Class<?> type, Statement stmt, boolean cached) {
+            StatementHandle handle = new StatementHandle(this, stmt, cached);
+            statements.add(handle);
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handle);
+        }
+
+        private Object call(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQLState class 08: connection exception, the connection must not be reused
+                if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                        && sqlException.getSQLState().startsWith("08")) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private void end() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (StatementHandle handle : new ArrayList<>(statements)) {
+                handle.close();
+            }
+            try {
+                if (!pooled.real.getAutoCommit()) {
+                    pooled.real.rollback();
+                    pooled.real.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                pooled.broken = true;
+            }
+            release(pooled);
+        }
+    }
+
+    // Statement handed out by a lease. Result sets it returns are closed together with it.
+    private static final class StatementHandle implements InvocationHandler {
+        private final Lease lease;
+        private final Statement real;
+        private final boolean cached;
+        private final List<ResultSet> results = new ArrayList<>();
+        private boolean closed;
+
+        StatementHandle(Lease lease, Statement real, boolean cached) {
+            this.lease = lease;
+            this.real = real;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "cancel":
+                    // A late cancel must not hit the next user of a cached statement
+                    synchronized (this) {
+                        if (!closed) {
+                            real.cancel();
+                        }
+                    }
+                    return null;
+                case "getConnection":
+                    return lease.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + real;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement ist bereits geschlossen.");
+            }
+            Object result = lease.call(real, method, args);
+            if (result instanceof ResultSet rs) {
+                results.add(rs);
+            }
+            return result;
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            lease.statements.remove(this);
+            try {
+                for (ResultSet rs : results) {
+                    rs.close();
+                }
+                results.clear();
+                if (cached) {
+                    PreparedStatement pstmt = (PreparedStatement) real;
+                    try {
+                        pstmt.clearParameters();
+                        pstmt.clearBatch();
+                    } finally {
+                        lease.pooled.statements.release(pstmt);
+                    }
+                } else {
+                    real.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,413 @@
+// src/CsvImporter.java
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Streaming import of bank statement CSV files into Buchungen. The file is read line by line and
+// written in chunks of COMMIT_ROWS rows, each chunk in one transaction together with its monthly rollup
+// delta and a checkpoint (ImportCheckpoint), so a failed or cancelled import resumes after the last
+// committed chunk.
+// Chunks go through LOAD DATA LOCAL INFILE if the server allows it, otherwise through batched INSERTs.
+// Expected columns: Datum, Info, Betrag and optionally Kategorie; a header line may name them in any order.
+// Negative amounts are expenses (AUSZAHLUNG), the category is looked up by name and type.
+public class CsvImporter {
+    private static final int BATCH_SIZE = AppConfig.getInt("import.batchSize", 1000);
+    private static final int COMMIT_ROWS = AppConfig.getInt("import.commitRows", 20_000);
+    private static final boolean USE_LOAD_DATA = AppConfig.getBoolean("import.loadData", true);
+    private static final char DELIMITER = AppConfig.getString("import.delimiter", ";").charAt(0);
+    private static final Charset CHARSET = Charset.forName(AppConfig.getString("import.charset", "UTF-8"));
+    private static final String DEFAULT_CATEGORY = AppConfig.getString("import.defaultCategory", "Sonstiges");
+    private static final int MAX_REPORTED_REJECTS = 20;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("dd.MM.yyyy"),
+            DateTimeFormatter.ofPattern("dd.MM.yy"),
+            DateTimeFormatter.ISO_LOCAL_DATE);
+
+    public interface ProgressListener {
+        void progress(Progress progress);
+    }
+
+    public record Progress(long lines, long imported, long bytesRead, long totalBytes, double rowsPerSecond) {
+    }
+
+    // loadDataFallback: why LOAD DATA was given up for batched INSERTs, null if it was not
+    public record Result(long imported, long skipped, long rejected, List<String> rejects, long millis, boolean loadData,
+                         String loadDataFallback) {
+    }
+
+    private record Row(LocalDate date, String info, double betrag, int categoryId) {
+    }
+
+    // Column positions of Datum, Info, Betrag and Kategorie (-1 = not present)
+    private record Columns(int date, int info, int amount, int category) {
+        static final Columns DEFAULT = new Columns(0, 1, 2, 3);
+    }
+
+    private final CategoryRegistry categories;
+    private volatile boolean cancelled;
+    private String loadDataFallback;
+
+    public CsvImporter(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Blocking, meant to be called through AsyncDataAccess
+    public Result importFile(Path file, ProgressListener listener) throws SQLException {
+        String key = file.toAbsolutePath() + ":" + sizeOf(file);
+        long totalBytes = sizeOf(file);
+        long started = System.nanoTime();
+        long lastReport = started;
+        long imported = 0;
+        long skipped = 0;
+        long rejected = 0;
+        List<String> rejects = new ArrayList<>();
+
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(counter, CHARSET), 1 << 16);
+             Connection conn = DatabaseConnection.getConnection()) {
+            long committedLines = readCheckpoint(conn, key);
+            boolean loadData = USE_LOAD_DATA && supportsLoadData(conn);
+            conn.setAutoCommit(false);
+
+            Columns columns = null;
+            List<Row> chunk = new ArrayList<>(Math.min(COMMIT_ROWS, 100_000));
+            long dataLines = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (cancelled) {
+                    throw new SQLException("Import abgebrochen.");
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = split(line);
+                if (columns == null) {
+                    columns = headerColumns(fields);
+                    if (columns != null) {
+                        continue;
+                    }
+                    columns = Columns.DEFAULT;
+                }
+                dataLines++;
+                if (dataLines <= committedLines) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    chunk.add(parse(fields, columns));
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    if (rejects.size() < MAX_REPORTED_REJECTS) {
+                        rejects.add("Zeile " + dataLines + ": " + e.getMessage());
+                    }
+                }
+
+                if (chunk.size() >= COMMIT_ROWS) {
+                    loadData = writeChunk(conn, chunk, loadData);
+                    addToRollup(conn, chunk);
+                    ChangeLog.allBookings(conn);
+                    saveCheckpoint(conn, key, dataLines);
+                    conn.commit();
+                    imported += chunk.size();
+                    chunk.clear();
+                }
+                long now = System.nanoTime();
+                if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    listener.progress(new Progress(dataLines, imported, counter.count, totalBytes, rate(imported, started, now)));
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                loadData = writeChunk(conn, chunk, loadData);
+                addToRollup(conn, chunk);
+                ChangeLog.allBookings(conn);
+                imported += chunk.size();
+            }
+            deleteCheckpoint(conn, key);
+            conn.commit();
+            long now = System.nanoTime();
+            listener.progress(new Progress(dataLines, imported, totalBytes, totalBytes, rate(imported, started, now)));
+            return new Result(imported, skipped, rejected, rejects, (now - started) / 1_000_000, loadData, loadDataFallback);
+        } catch (IOException e) {
+            throw new SQLException("Datei konnte nicht gelesen werden: " + e.getMessage(), e);
+        } finally {
+            // Committed chunks are searchable right away, also after a cancel or an error
+            try {
+                InfoIndex.catchUp();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Writes one chunk in the current transaction; returns whether LOAD DATA can be used for the next one
+    private boolean writeChunk(Connection conn, List<Row> chunk, boolean loadData) throws SQLException {
+        if (loadData) {
+            try {
+                loadDataInfile(conn, chunk);
+                return true;
+            } catch (SQLException e) {
+                // E.g. allowLocalInfile is not set in the JDBC URL; only this chunk is in the transaction
+                loadDataFallback = e.getMessage();
+                conn.rollback();
+            }
+        }
+        insertBatches(conn, chunk);
+        return false;
+    }
+
+    private static void addToRollup(Connection conn, List<Row> chunk) throws SQLException {
+        MonthlyRollup.Delta delta = new MonthlyRollup.Delta();
+        for (Row row : chunk) {
+            delta.add(row.date(), row.categoryId(), BookingStore.toCents(row.betrag()), 1);
+        }
+        delta.apply(conn);
+    }
+
+    private void insertBatches(Connection conn, List<Row> chunk) throws SQLException {
+        String sql = "INSERT INTO Buchungen (Datum, Info, Betrag, KategorieID) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement(sql))) {
+            int batched = 0;
+            for (Row row : chunk) {
+                pstmt.setDate(1, Date.valueOf(row.date()));
+                pstmt.setString(2, row.info());
+                pstmt.setDouble(3, row.betrag());
+                pstmt.setInt(4, row.categoryId());
+                pstmt.addBatch();
+                if (++batched == BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    // Streams the chunk as tab separated text; the driver sends it in place of the named file
+    private void loadDataInfile(Connection conn, List<Row> chunk) throws SQLException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(chunk.size() * 48);
+        StringBuilder line = new StringBuilder(128);
+        for (Row row : chunk) {
+            line.setLength(0);
+            line.append(row.date()).append('\t');
+            appendEscaped(line, row.info());
+            line.append('\t').append(BigDecimal.valueOf(BookingStore.toCents(row.betrag()), 2).toPlainString()).append('\t').append(row.categoryId()).append('\n');
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.write(bytes, 0, bytes.length);
+        }
+        String sql = "LOAD DATA LOCAL INFILE 'import.tsv' INTO TABLE Buchungen CHARACTER SET utf8mb4 " +
+                "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (Datum, Info, Betrag, KategorieID)";
+        try (Statement stmt = AsyncDataAccess.track(conn.createStatement())) {
+            stmt.unwrap(org.mariadb.jdbc.Statement.class).setLocalInfileInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+            stmt.execute(sql);
+        }
+    }
+
+    private static boolean supportsLoadData(Connection conn) {
+        if (!DatabaseConnection.dialect().supportsLoadData()) {
+            return false;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @@local_infile")) {
+            return conn.isWrapperFor(org.mariadb.jdbc.Connection.class) && rs.next() && rs.getInt(1) == 1;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static long readCheckpoint(Connection conn, String key) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT Zeilen FROM ImportCheckpoint WHERE Datei = ?")) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static void saveCheckpoint(Connection conn, String key, long lines) throws SQLException {
+        String sql = DatabaseConnection.dialect().checkpointUpsert();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            pstmt.setLong(2, lines);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void deleteCheckpoint(Connection conn, String key) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM ImportCheckpoint WHERE Datei = ?")) {
+            pstmt.setString(1, key);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private Row parse(List<String> fields, Columns columns) {
+        LocalDate date = parseDate(field(fields, columns.date()));
+        String info = field(fields, columns.info());
+        double amount = parseAmount(field(fields, columns.amount()));
+        TransactionType type = amount < 0 ? TransactionType.AUSZAHLUNG : TransactionType.EINZAHLUNG;
+        String name = field(fields, columns.category());
+        if (name.isEmpty()) {
+            name = DEFAULT_CATEGORY;
+        }
+        Category category = categories.byName(name, type);
+        if (category == null) {
+            throw new IllegalArgumentException("Kategorie nicht gefunden: " + new Category(0, name, null, type).label());
+        }
+        return new Row(date, info, Math.abs(amount), category.id());
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    private static LocalDate parseDate(String value) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Ungültiges Datum: " + value);
+    }
+
+    // Accepts "1.234,56", "-12,50", "12.50" and an optional currency sign
+    private static double parseAmount(String value) {
+        String cleaned = value.replace("€", "").replace("EUR", "").replace(" ", "").replace("\u00a0", "");
+        if (cleaned.contains(",")) {
+            cleaned = cleaned.replace(".", "").replace(',', '.');
+        }
+        try {
+            return Double.parseDouble(cleaned);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültiger Betrag: " + value);
+        }
+    }
+
+    // Column positions from a header line, or null if the line is data
+    private static Columns headerColumns(List<String> fields) {
+        int date = -1;
+        int info = -1;
+        int amount = -1;
+        int category = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            switch (fields.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "datum", "buchungstag", "buchungsdatum" -> date = i;
+                case "info", "verwendungszweck", "buchungstext" -> info = i;
+                case "betrag", "umsatz" -> amount = i;
+                case "kategorie" -> category = i;
+                default -> {
+                }
+            }
+        }
+        if (date >= 0 && amount >= 0) {
+            return new Columns(date, info, amount, category);
+        }
+        try {
+            parseDate(field(fields, 0));
+            return null;
+        } catch (IllegalArgumentException e) {
+            // Unknown header names: keep the default order
+            return Columns.DEFAULT;
+        }
+    }
+
+    // Splits one line; fields may be quoted with "..." and contain "" for a quote
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == DELIMITER) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void appendEscaped(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> line.append("\\\\");
+                case '\t' -> line.append("\\t");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                default -> line.append(c);
+            }
+        }
+    }
+
+    private static double rate(long rows, long startedNanos, long nowNanos) {
+        double seconds = (nowNanos - startedNanos) / 1e9;
+        return seconds > 0 ? rows / seconds : 0;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
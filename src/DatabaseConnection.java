@@ -1,14 +1,55 @@
 // src/DatabaseConnection.java
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+// Connection pool of the configured database. db.engine selects a MariaDB server (default) or an
+// embedded H2 file; db.url overrides the URL of either. With db.engine=journal no database is used (see JournalRepository).
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mariadb://localhost:3306/Haushaltsbuch";
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
+    private static final String ENGINE = AppConfig.getString("db.engine", "mariadb");
+    private static final String URL = AppConfig.getString("db.url", ENGINE.equalsIgnoreCase("h2")
+            ? "jdbc:h2:./haushaltsbuch;MODE=MariaDB;DATABASE_TO_LOWER=TRUE"
+            : "jdbc:mariadb://localhost:3306/Haushaltsbuch");
+    private static final SqlDialect DIALECT = SqlDialect.fromUrl(URL);
+    private static final String USER = AppConfig.getString("db.user", "root");
+    private static final String PASSWORD = AppConfig.getString("db.password", "");
 
+    private static volatile ConnectionPool pool;
+
+    // Creates the pool and checks that the database can be reached
+    public static synchronized void initialize() throws SQLException {
+        if (pool != null) {
+            return;
+        }
+        ConnectionPool created = new ConnectionPool(URL, USER, PASSWORD,
+                AppConfig.getInt("db.pool.size", 4),
+                AppConfig.getInt("db.pool.statementCacheSize", 50),
+                AppConfig.getInt("db.pool.validateAfterMillis", 30_000),
+                AppConfig.getInt("db.pool.timeoutMillis", 10_000));
+        try (Connection conn = created.borrow()) {
+            conn.getMetaData();
+        } catch (SQLException e) {
+            created.close();
+            throw e;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(created::close, "db-pool-shutdown"));
+        pool = created;
+    }
+
+    public static String url() {
+        return URL;
+    }
+
+    public static SqlDialect dialect() {
+        return DIALECT;
+    }
+
+    // Borrows a connection from the pool; closing it returns it to the pool
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        ConnectionPool current = pool;
+        if (current == null) {
+            initialize();
+            current = pool;
+        }
+        return current.borrow();
     }
 }
@@ -0,0 +1,220 @@
+// src/DeltaSync.java
+import javax.swing.SwingUtilities;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Keeps a client up to date with the changes other clients write to the same database. Every
+// sync.pollSeconds the ChangeLog is read from the last known version on; the bookings named there are
+// loaded by ID and handed to the listener on the EDT, together with the IDs that no longer exist.
+// Versions are assigned when a transaction writes its entries, not when it commits, so a version
+// missing between two seen ones may still arrive; it is waited for up to sync.gapGraceSeconds.
+// A gap that is still open then belongs to a rolled-back or a long transaction (e.g. a CSV import
+// chunk): everything is reloaded, and its versions are watched until sync.keepDays in case they
+// commit after all.
+public class DeltaSync {
+    private static final int POLL_SECONDS = AppConfig.getInt("sync.pollSeconds", 5);
+    private static final int KEEP_DAYS = AppConfig.getInt("sync.keepDays", 7);
+    // More entries than this are not applied one by one; everything is reloaded instead
+    private static final int MAX_ENTRIES = 5000;
+    private static final long GAP_GRACE_MILLIS = AppConfig.getInt("sync.gapGraceSeconds", 30) * 1000L;
+    private static final long KEEP_MILLIS = KEEP_DAYS * 86_400_000L;
+
+    // Rows of the changed bookings, the IDs of the deleted ones, whether categories changed and
+    // whether everything has to be reloaded because the changes were not logged row by row.
+    // Together with the earlier changes they bring a client up to the given version.
+    public record Changes(BookingStore bookings, int[] deletedIds, boolean categories, boolean reload, long version) {
+        static Changes reload(long version) {
+            return new Changes(new BookingStore(0), new int[0], true, true, version);
+        }
+
+        public boolean isEmpty() {
+            return bookings.size() == 0 && deletedIds.length == 0 && !categories && !reload;
+        }
+    }
+
+    private final BookingRepository repository;
+    private ScheduledExecutorService poller;
+    // All versions up to confirmed are applied; seen is the newest version applied
+    private long confirmed;
+    private long seen;
+    // Missing versions below seen -> when they were first missed
+    private final Map<Long, Long> gaps = new HashMap<>();
+    // Gaps given up after the grace time -> when they were first missed; checked for late commits
+    private final Map<Long, Long> overdue = new HashMap<>();
+    private long lastPoll;
+
+    public DeltaSync(BookingRepository repository) {
+        this.repository = repository;
+    }
+
+    // The journal has only one client
+    public static boolean isEnabled() {
+        return !JournalRepository.isSelected();
+    }
+
+    // Remembers the current version and returns it; must be called before the bookings are loaded, so
+    // that no change between the two is missed. Also removes log entries older than sync.keepDays.
+    public synchronized long init() throws SQLException {
+        ChangeLog.prune(KEEP_DAYS);
+        reset(ChangeLog.currentVersion());
+        return confirmed;
+    }
+
+    // Changes since the given version, e.g. that of a local snapshot; a reload if the log no longer
+    // reaches back that far or was recreated since
+    public synchronized Changes catchUp(long version) throws SQLException {
+        if (ChangeLog.oldestVersion() > version + 1 || ChangeLog.currentVersion() < version) {
+            return reloadAll(init());
+        }
+        reset(version);
+        Changes changes = poll();
+        ChangeLog.prune(KEEP_DAYS);
+        return changes;
+    }
+
+    private void reset(long version) {
+        confirmed = version;
+        seen = version;
+        gaps.clear();
+        overdue.clear();
+        lastPoll = System.currentTimeMillis();
+    }
+
+    // Starts polling every sync.pollSeconds unless that is 0; changes are passed to the listener on the EDT
+    public synchronized void start(Consumer<Changes> listener) {
+        if (poller != null || POLL_SECONDS <= 0) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "delta-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                Changes changes = poll();
+                if (!changes.isEmpty()) {
+                    SwingUtilities.invokeLater(() -> listener.accept(changes));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }, POLL_SECONDS, POLL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Reads the changes since the last poll; blocking
+    public synchronized Changes poll() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPoll > KEEP_MILLIS / 2) {
+            // E.g. after a long standby the entries in between may already be pruned
+            return reloadAll(init());
+        }
+        try (Metrics.Sample sample = Metrics.start("sync.poll")) {
+            List<ChangeLog.Entry> entries = ChangeLog.since(confirmed, MAX_ENTRIES + 1);
+            sample.rows(entries.size());
+            if (entries.size() > MAX_ENTRIES) {
+                return reloadAll(init());
+            }
+            // The state only advances once the changes are loaded, so a failed poll is simply repeated
+            Map<Long, Long> nextGaps = new HashMap<>(gaps);
+            Map<Long, Long> nextOverdue = new HashMap<>(overdue);
+            long nextSeen = seen;
+            Collected collected = new Collected();
+            long expected = confirmed + 1;
+            for (ChangeLog.Entry entry : entries) {
+                long firstMissing = Math.max(expected, nextSeen + 1);
+                // A jump of the auto-increment counter is not a gap worth waiting for
+                if (entry.version() - firstMissing <= MAX_ENTRIES) {
+                    for (long missing = firstMissing; missing < entry.version(); missing++) {
+                        nextGaps.put(missing, now);
+                    }
+                }
+                expected = entry.version() + 1;
+                boolean fresh = nextGaps.remove(entry.version()) != null || entry.version() > nextSeen;
+                nextSeen = Math.max(nextSeen, entry.version());
+                if (fresh) {
+                    collected.add(entry);
+                }
+            }
+            // Versions given up earlier that have committed after all
+            if (!overdue.isEmpty()) {
+                for (ChangeLog.Entry entry : ChangeLog.find(overdue.keySet())) {
+                    nextOverdue.remove(entry.version());
+                    collected.add(entry);
+                }
+            }
+            // A gap still open after the grace time may hide changes that are never seen row by row
+            for (Map.Entry<Long, Long> gap : Map.copyOf(nextGaps).entrySet()) {
+                if (now - gap.getValue() > GAP_GRACE_MILLIS) {
+                    nextGaps.remove(gap.getKey());
+                    nextOverdue.put(gap.getKey(), gap.getValue());
+                    collected.reload = true;
+                }
+            }
+            nextOverdue.values().removeIf(missedAt -> now - missedAt > KEEP_MILLIS);
+            if (nextOverdue.size() > MAX_ENTRIES) {
+                return reloadAll(init());
+            }
+            long nextConfirmed = nextGaps.isEmpty() ? nextSeen
+                    : nextGaps.keySet().stream().mapToLong(Long::longValue).min().getAsLong() - 1;
+            Changes changes = collected.reload ? reloadAll(nextConfirmed)
+                    : load(collected.bookingIds, collected.categories, nextConfirmed);
+            gaps.clear();
+            gaps.putAll(nextGaps);
+            overdue.clear();
+            overdue.putAll(nextOverdue);
+            seen = nextSeen;
+            confirmed = nextConfirmed;
+            lastPoll = now;
+            return changes;
+        }
+    }
+
+    // What the fresh entries of one poll changed; the own ones are already shown
+    private static final class Collected {
+        final Set<Integer> bookingIds = new HashSet<>();
+        boolean categories;
+        boolean reload;
+
+        void add(ChangeLog.Entry entry) {
+            if (entry.own()) {
+                return;
+            }
+            if (entry.table() == ChangeLog.CATEGORIES) {
+                categories = true;
+            } else if (entry.id() == 0) {
+                reload = true;
+            } else {
+                bookingIds.add(entry.id());
+            }
+        }
+    }
+
+    // Everything is reloaded; bookings inserted meanwhile, e.g. by a CSV import, are added to the search index
+    private static Changes reloadAll(long version) throws SQLException {
+        InfoIndex.catchUp();
+        return Changes.reload(version);
+    }
+
+    private Changes load(Set<Integer> bookingIds, boolean categories, long version) throws SQLException {
+        int[] ids = bookingIds.stream().mapToInt(Integer::intValue).toArray();
+        BookingStore bookings = ids.length > 0 ? repository.loadByIds(ids, BookingFilter.NONE) : new BookingStore(0);
+        for (int i = 0; i < bookings.size(); i++) {
+            bookingIds.remove(bookings.id(i));
+            InfoIndex.put(bookings.id(i), bookings.info(i));
+        }
+        int[] deletedIds = bookingIds.stream().mapToInt(Integer::intValue).toArray();
+        for (int id : deletedIds) {
+            InfoIndex.remove(id);
+        }
+        return new Changes(bookings, deletedIds, categories, false, version);
+    }
+}
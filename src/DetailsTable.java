@@ -1,14 +1,10 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
 public class DetailsTable extends JFrame {
-    public DetailsTable(JFrame parent, Connection conn, String bezeichnung) {
-        setTitle("Details for " + bezeichnung);
+    public DetailsTable(JFrame parent, Category category) {
+        setTitle("Details for " + category.name());
         setSize(600, 150);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
@@ -20,19 +16,7 @@ public class DetailsTable extends JFrame {
         centerRenderer.setHorizontalAlignment(JLabel.CENTER);
         newTable.setDefaultRenderer(Object.class, centerRenderer);
 
-        // Load data into the new table
-        try (PreparedStatement pstmt = conn.prepareStatement("SELECT Bezeichnung, Kurzbeschreibung, Einzahlung_Auszahlung FROM Kategorie WHERE Bezeichnung = ?")) {
-            pstmt.setString(1, bezeichnung);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                String bez = rs.getString("Bezeichnung");
-                String beschreibung = rs.getString("Kurzbeschreibung");
-                TransactionType transactionType = TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung"));
-                newTableModel.addRow(new Object[]{bez, beschreibung, transactionType.name()});
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        newTableModel.addRow(new Object[]{category.name(), category.description(), category.type().name()});
 
         add(new JScrollPane(newTable));
 
@@ -0,0 +1,135 @@
+// src/DiagnosticsWindow.java
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+// Live view of the Metrics (calls, latencies, rows and bytes per operation) and of the EDT stalls
+// found by the EdtWatchdog, refreshed every second
+public class DiagnosticsWindow extends JFrame {
+    private final DefaultTableModel operationModel = readOnlyModel("Operation", "Anzahl", "Mittel (ms)",
+            "p50 (ms)", "p95 (ms)", "p99 (ms)", "Max (ms)", "Zeilen", "Bytes");
+    private final DefaultTableModel stallModel = readOnlyModel("Zeit", "Dauer (ms)", "Operation", "Stelle");
+    private final JLabel stallSummary = new JLabel();
+    private final JTextArea stackArea = new JTextArea();
+    private List<EdtWatchdog.Stall> shownStalls = List.of();
+    private int shownStallCount = -1;
+    private final Timer refreshTimer = new Timer(1000, e -> refresh());
+
+    public DiagnosticsWindow(JFrame parent) {
+        setTitle("Diagnose");
+        setLayout(new BorderLayout());
+
+        JTabbedPane tabs = new JTabbedPane();
+        JTable operationTable = new JTable(operationModel);
+        operationTable.setAutoCreateRowSorter(true);
+        tabs.addTab("Operationen", new JScrollPane(operationTable));
+        tabs.addTab("EDT-Blockaden", stallPanel());
+        add(tabs, BorderLayout.CENTER);
+
+        JButton resetButton = new JButton("Zurücksetzen");
+        resetButton.addActionListener(e -> {
+            Metrics.reset();
+            refresh();
+        });
+        JButton dumpButton = new JButton("In Datei schreiben");
+        dumpButton.addActionListener(e -> {
+            Metrics.dump();
+            UIHelper.showInfoDialog(this, "Metriken geschrieben nach " + AppConfig.getString("metrics.file", "haushaltsbuch-metrics.log"));
+        });
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(resetButton);
+        buttonPanel.add(dumpButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        refresh();
+        refreshTimer.start();
+
+        setSize(900, 400);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(parent);
+        setVisible(true);
+    }
+
+    // Stalls, newest first; the stack of the selected one is shown below
+    private JPanel stallPanel() {
+        JTable stallTable = new JTable(stallModel);
+        stallTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        stallTable.getSelectionModel().addListSelectionListener(e -> {
+            int row = stallTable.getSelectedRow();
+            stackArea.setText(row >= 0 && row < shownStalls.size() ? shownStalls.get(row).stack() : "");
+            stackArea.setCaretPosition(0);
+        });
+        stackArea.setEditable(false);
+        stackArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(stallTable), new JScrollPane(stackArea));
+        split.setResizeWeight(0.5);
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(stallSummary, BorderLayout.NORTH);
+        panel.add(split, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void refresh() {
+        refreshOperations();
+        // Only rebuilt when there are new stalls, so that the selection survives
+        if (EdtWatchdog.stallCount() != shownStallCount) {
+            refreshStalls();
+        }
+    }
+
+    private void refreshStalls() {
+        shownStallCount = EdtWatchdog.stallCount();
+        shownStalls = EdtWatchdog.recentStalls();
+        stallModel.setRowCount(0);
+        EdtWatchdog.Stall longest = null;
+        for (EdtWatchdog.Stall stall : shownStalls) {
+            stallModel.addRow(new Object[]{stall.time().withNano(0).toString().replace('T', ' '), stall.millis(),
+                    stall.operation() != null ? stall.operation() : "-", stall.location()});
+            if (longest == null || stall.millis() > longest.millis()) {
+                longest = stall;
+            }
+        }
+        stallSummary.setText(longest == null
+                ? " Keine Blockaden seit dem Start."
+                : String.format(" %d Blockaden seit dem Start, längste der letzten %d: %d ms in %s",
+                shownStallCount, shownStalls.size(), longest.millis(), longest.location()));
+    }
+
+    private void refreshOperations() {
+        operationModel.setRowCount(0);
+        for (Metrics.Snapshot s : Metrics.snapshot()) {
+            operationModel.addRow(new Object[]{s.operation(), s.count(), millis(s.meanNanos()), millis(s.p50Nanos()),
+                    millis(s.p95Nanos()), millis(s.p99Nanos()), millis(s.maxNanos()), s.rows(), s.bytes()});
+        }
+    }
+
+    // Milliseconds with one decimal
+    private static Double millis(long nanos) {
+        return Math.round(Metrics.millis(nanos) * 10) / 10.0;
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            // Numbers sort numerically
+            @Override
+            public Class<?> getColumnClass(int column) {
+                Object value = getRowCount() > 0 ? getValueAt(0, column) : null;
+                return value != null ? value.getClass() : Object.class;
+            }
+        };
+    }
+}
@@ -0,0 +1,152 @@
+// src/EditQueue.java
+import javax.swing.Timer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Write-behind queue for cell edits of the bookings table. Edits are collected per booking and
+// column, so repeated edits of the same cell only write the last value. The queue is flushed as one
+// batch in a single transaction when the timer fires, when the window loses focus or on close.
+// Only used on the EDT.
+public class EditQueue {
+    private static final int FLUSH_DELAY_MILLIS = AppConfig.getInt("edits.flushDelayMillis", 2000);
+
+    // A pending edit; original is the cell value before the first edit and is restored on failure
+    private record Edit(int id, int column, BuchungFeld field, String value, Object original) {
+    }
+
+    private record Key(int id, int column) {
+    }
+
+    private final BookingRepository repository;
+    private final AsyncDataAccess dataAccess;
+    private final Consumer<List<String>> onFailures;
+    private final Timer timer;
+    private Map<Key, Edit> pending = new LinkedHashMap<>();
+    private BookingTableModel model;
+    // Flushes run one after another so that a newer value can never be overwritten by an older one
+    private boolean flushing;
+    private boolean flushAgain;
+
+    public EditQueue(BookingRepository repository, AsyncDataAccess dataAccess, Consumer<List<String>> onFailures) {
+        this.repository = repository;
+        this.dataAccess = dataAccess;
+        this.onFailures = onFailures;
+        this.timer = new Timer(FLUSH_DELAY_MILLIS, e -> flush());
+        this.timer.setRepeats(false);
+    }
+
+    // Queues the edits of the model and restores its cells if they cannot be saved
+    public void attach(BookingTableModel model) {
+        this.model = model;
+        model.setEditListener(this::add);
+    }
+
+    private void add(int id, int column, Object oldValue, Object newValue) {
+        BuchungFeld field = fieldFor(column);
+        if (field == null || newValue == null) {
+            return;
+        }
+        Key key = new Key(id, column);
+        Edit previous = pending.remove(key);
+        Object original = previous != null ? previous.original() : oldValue;
+        pending.put(key, new Edit(id, column, field, newValue.toString(), original));
+        timer.restart();
+    }
+
+    // Drops the pending edits of a booking, e.g. before it is deleted
+    public void discard(int id) {
+        pending.keySet().removeIf(key -> key.id() == id);
+    }
+
+    public void flush() {
+        timer.stop();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (flushing) {
+            flushAgain = true;
+            return;
+        }
+        List<Edit> edits = takePending();
+        flushing = true;
+        dataAccess.submit(() -> repository.updateAll(toUpdates(edits)), errors -> {
+            flushing = false;
+            handleErrors(edits, errors);
+            continueFlushing();
+        }, e -> {
+            flushing = false;
+            e.printStackTrace();
+            String[] errors = new String[edits.size()];
+            Arrays.fill(errors, e.getMessage());
+            handleErrors(edits, errors);
+            continueFlushing();
+        });
+    }
+
+    // Writes the pending edits on the calling thread; used when the application exits
+    public void flushNow() {
+        timer.stop();
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Edit> edits = takePending();
+        try {
+            handleErrors(edits, repository.updateAll(toUpdates(edits)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void continueFlushing() {
+        if (flushAgain) {
+            flushAgain = false;
+            flush();
+        }
+    }
+
+    private List<Edit> takePending() {
+        List<Edit> edits = new ArrayList<>(pending.values());
+        pending = new LinkedHashMap<>();
+        return edits;
+    }
+
+    private static List<BookingRepository.FieldUpdate> toUpdates(List<Edit> edits) {
+        List<BookingRepository.FieldUpdate> updates = new ArrayList<>(edits.size());
+        for (Edit edit : edits) {
+            updates.add(new BookingRepository.FieldUpdate(edit.id(), edit.field(), edit.value()));
+        }
+        return updates;
+    }
+
+    private void handleErrors(List<Edit> edits, String[] errors) {
+        List<String> failures = new ArrayList<>();
+        for (int i = 0; i < edits.size(); i++) {
+            if (errors[i] == null) {
+                continue;
+            }
+            Edit edit = edits.get(i);
+            failures.add("Buchung " + edit.id() + " (" + edit.field() + "): " + errors[i]);
+            // A newer edit of the same cell is still queued and wins over the rollback
+            if (model != null && !pending.containsKey(new Key(edit.id(), edit.column()))) {
+                model.restoreValue(edit.id(), edit.column(), edit.original());
+            }
+        }
+        if (!failures.isEmpty()) {
+            onFailures.accept(failures);
+        }
+    }
+
+    private static BuchungFeld fieldFor(int column) {
+        return switch (column) {
+            case BookingTableModel.COLUMN_INFO -> BuchungFeld.INFO;
+            case BookingTableModel.COLUMN_EINZAHLUNG, BookingTableModel.COLUMN_AUSZAHLUNG -> BuchungFeld.BETRAG;
+            case BookingTableModel.COLUMN_DATUM -> BuchungFeld.DATUM;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,202 @@
+// src/EdtWatchdog.java
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Watches the responsiveness of the event dispatch thread. A background thread posts a heartbeat to the
+// EDT every watchdog.intervalMillis; once a heartbeat has waited longer than watchdog.thresholdMillis the
+// EDT's stack is captured. When the EDT is free again the stall is recorded with its duration, the
+// Metrics operation that was running on the EDT and the innermost application frame of the stack.
+// Stalls are kept for the DiagnosticsWindow, appended to a rolling log file and emitted as JFR events.
+public class EdtWatchdog {
+    private static final Path FILE = Path.of(AppConfig.getString("watchdog.file", "haushaltsbuch-edt.log"));
+    private static final long MAX_FILE_BYTES = 1L << 20;
+    private static final int KEPT_STALLS = 100;
+
+    public record Stall(LocalDateTime time, long millis, String operation, String location, String stack) {
+    }
+
+    @Name("haushaltsbuch.EdtStall")
+    @Label("EDT blockiert")
+    @jdk.jfr.Category("Haushaltsbuch")
+    static final class StallEvent extends Event {
+        @Label("Dauer")
+        @Timespan(Timespan.MILLISECONDS)
+        long millis;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Stelle")
+        String location;
+    }
+
+    // Metrics operations running on the EDT, innermost first; only touched on the EDT
+    private static final Deque<String> operations = new ArrayDeque<>();
+    private static volatile String currentOperation;
+
+    private static final Deque<Stall> stalls = new ArrayDeque<>();
+    private static int stallCount;
+    private static Thread watchdog;
+
+    private final long intervalNanos;
+    private final long thresholdNanos;
+    private volatile Thread edt;
+    // nanoTime when the pending heartbeat was posted, 0 if none is pending
+    private volatile long postedAt;
+    // Captured while the EDT is blocked, recorded when it is free again
+    private StackTraceElement[] capturedStack;
+    private String capturedOperation;
+
+    private EdtWatchdog(long intervalMillis, long thresholdMillis) {
+        intervalNanos = intervalMillis * 1_000_000;
+        thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    // Starts the watchdog thread unless watchdog.thresholdMillis is 0
+    public static synchronized void start() {
+        long threshold = AppConfig.getInt("watchdog.thresholdMillis", 300);
+        if (watchdog != null || threshold <= 0) {
+            return;
+        }
+        EdtWatchdog instance = new EdtWatchdog(Math.max(10, AppConfig.getInt("watchdog.intervalMillis", 100)), threshold);
+        watchdog = new Thread(instance::run, "edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    // Called by Metrics for samples on the EDT
+    static void enter(String operation) {
+        operations.push(operation);
+        currentOperation = operation;
+    }
+
+    static void exit() {
+        operations.poll();
+        currentOperation = operations.peek();
+    }
+
+    // Most recent stalls, newest first
+    public static synchronized List<Stall> recentStalls() {
+        return new ArrayList<>(stalls);
+    }
+
+    // Number of stalls since the start, including those no longer kept
+    public static synchronized int stallCount() {
+        return stallCount;
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                Thread.sleep(intervalNanos / 1_000_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long posted = postedAt;
+            if (posted == 0) {
+                postedAt = System.nanoTime();
+                SwingUtilities.invokeLater(this::beat);
+            } else if (System.nanoTime() - posted >= thresholdNanos) {
+                capture();
+            }
+        }
+    }
+
+    private synchronized void capture() {
+        Thread thread = edt;
+        if (capturedStack != null || thread == null) {
+            return;
+        }
+        capturedStack = thread.getStackTrace();
+        capturedOperation = currentOperation;
+    }
+
+    // Runs on the EDT
+    private void beat() {
+        edt = Thread.currentThread();
+        long blockedNanos = System.nanoTime() - postedAt;
+        postedAt = 0;
+        StackTraceElement[] stack;
+        String operation;
+        synchronized (this) {
+            stack = capturedStack;
+            operation = capturedOperation;
+            capturedStack = null;
+            capturedOperation = null;
+        }
+        if (stack != null) {
+            record(new Stall(LocalDateTime.now(), blockedNanos / 1_000_000, operation, location(stack), format(stack)));
+        }
+    }
+
+    private static void record(Stall stall) {
+        synchronized (EdtWatchdog.class) {
+            stalls.addFirst(stall);
+            if (stalls.size() > KEPT_STALLS) {
+                stalls.removeLast();
+            }
+            stallCount++;
+        }
+        StallEvent event = new StallEvent();
+        if (event.shouldCommit()) {
+            event.millis = stall.millis();
+            event.operation = stall.operation();
+            event.location = stall.location();
+            event.commit();
+        }
+        // File access off the EDT, which has just been blocked long enough
+        Thread.ofVirtual().start(() -> append(stall));
+    }
+
+    // Appends the stall to the log file; a full file is moved to <file>.1
+    private static synchronized void append(Stall stall) {
+        try {
+            if (Files.isRegularFile(FILE) && Files.size(FILE) > MAX_FILE_BYTES) {
+                Files.move(FILE, FILE.resolveSibling(FILE.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                out.println(stall.time() + " EDT " + stall.millis() + " ms blockiert, Operation: "
+                        + (stall.operation() != null ? stall.operation() : "-") + ", Stelle: " + stall.location());
+                out.println(stall.stack());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Innermost frame of the application's own code, e.g. "HaushaltsbuchGUI.searchBooking:412"
+    private static String location(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.contains(".") && !className.startsWith("EdtWatchdog") && !className.startsWith("Metrics")) {
+                return className + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return stack.length > 0 ? stack[0].toString() : "?";
+    }
+
+    private static String format(StackTraceElement[] stack) {
+        StringBuilder text = new StringBuilder();
+        for (StackTraceElement frame : stack) {
+            text.append("\tat ").append(frame).append('\n');
+        }
+        return text.toString();
+    }
+}
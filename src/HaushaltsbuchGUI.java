@@ -2,46 +2,154 @@
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.event.TableModelEvent;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
 import java.awt.*;
-import java.awt.datatransfer.Clipboard;
-import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.sql.*;
+import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.function.Consumer;
-import org.jdesktop.swingx.JXDatePicker;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 public class HaushaltsbuchGUI extends JFrame {
-    private Connection conn;
-    private DefaultTableModel tableModel;
+    private final BookingRepository repository = BookingRepository.open();
+    private final AsyncDataAccess dataAccess = new AsyncDataAccess();
+    private final CategoryRegistry categories = new CategoryRegistry(CategoryRepository.open());
+    private final DeltaSync deltaSync = new DeltaSync(repository);
+    private final EditQueue editQueue = new EditQueue(repository, dataAccess, this::showEditFailures);
+    private BookingTableModel tableModel;
     private JComboBox<String> categoryDropdown;
     private JTextField infoField, betragField, searchField;
     private JTable buchungenTable;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private BookingRowSorter sorter;
     private LocalDate customDate;
-    private JXDatePicker startDatePicker, endDatePicker;
+    private LazyDatePicker startDatePicker, endDatePicker;
     private JButton resetButton;
+    private JProgressBar busyIndicator;
+    private JButton schemaNotice;
+    private JLabel totalsLabel;
+    private Timer searchTimer;
     private JPanel panel1;
 
+    // Loads that have to finish before the window counts as interactive: categories and bookings
+    private int startupLoads = 2;
+    // ChangeLog version the shown bookings are up to date with, -1 if unknown
+    private long syncedVersion = -1;
+    private boolean painted;
+
+    // The window is shown before anything is loaded; hydrate() then fills it in the background
     public HaushaltsbuchGUI() {
-        connectToDatabase();
+        Metrics.startDump();
+        EdtWatchdog.start();
         initializeUIComponents();
         addRightClickMenu();
         addDoubleClickListener();
-        loadData();
+        hydrate();
     }
 
-    private void connectToDatabase() {
-        try {
-            conn = DatabaseConnection.getConnection();
-        } catch (SQLException e) {
-            UIHelper.showErrorDialog(this, "Fehler bei der Datenbankverbindung!");
+    // Time to first paint, measured from the start of the JVM
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            reportStartup("startup.firstPaint");
+        }
+    }
+
+    // Shows the local snapshot right away if there is one, then connects
+    private void hydrate() {
+        dataAccess.submit("startup", BookingSnapshot::read, snapshot -> {
+            if (snapshot != null) {
+                categories.restore(snapshot.categories());
+                tableModel.showSnapshot(snapshot.bookings());
+                startupLoads = 0;
+                reportStartup("startup.interactive");
+            }
+            connect(snapshot);
+        }, e -> {
+            e.printStackTrace();
+            connect(null);
+        });
+    }
+
+    // Connects, then catches up with the changes since the snapshot, or without one loads categories and
+    // the first bookings; the search index loads concurrently
+    private void connect(BookingSnapshot.Snapshot snapshot) {
+        dataAccess.submit("startup", () -> {
+            connectToDatabase();
+            if (!DeltaSync.isEnabled()) {
+                return null;
+            }
+            if (snapshot != null) {
+                return deltaSync.catchUp(snapshot.version());
+            }
+            // Before the first load, so that no change of another client in between is missed
+            return DeltaSync.Changes.reload(deltaSync.init());
+        }, changes -> {
+            String discarded = JournalRepository.isSelected() ? JournalRepository.instance().discardedMessage() : null;
+            if (discarded != null) {
+                UIHelper.showErrorDialog(this, discarded);
+            }
+            if (snapshot != null) {
+                applyRemoteChanges(changes);
+            } else {
+                syncedVersion = changes != null ? changes.version() : -1;
+                loadCategories();
+                tableModel.whenLoaded(this::startupLoaded);
+                loadData();
+            }
+            if (!JournalRepository.isSelected()) {
+                loadInfoIndex();
+                verifySchema(false);
+            }
+            if (DeltaSync.isEnabled()) {
+                deltaSync.start(this::applyRemoteChanges);
+            }
+        }, e -> {
+            UIHelper.showErrorDialog(this, JournalRepository.isSelected()
+                    ? "Fehler beim Öffnen des Journals!" : "Fehler bei der Datenbankverbindung!");
             e.printStackTrace();
             System.exit(1);
+        });
+    }
+
+    private void startupLoaded() {
+        if (--startupLoads == 0) {
+            reportStartup("startup.interactive");
+        }
+    }
+
+    private static void reportStartup(String operation) {
+        Metrics.record(operation, ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000);
+    }
+
+    // Opens the journal, or connects to the database and brings its schema up to date; blocking
+    private void connectToDatabase() throws SQLException {
+        if (JournalRepository.isSelected()) {
+            JournalRepository.instance().open();
+            InfoIndex.disable();
+            return;
+        }
+        DatabaseConnection.initialize();
+        SchemaManager.migrate();
+    }
+
+    // Features that run their own SQL are not available on the journal
+    private boolean unavailableInJournalMode() {
+        if (JournalRepository.isSelected()) {
+            UIHelper.showInfoDialog(this, "Im Journal-Modus nicht verfügbar.");
+            return true;
         }
+        return false;
     }
 
     // src/HaushaltsbuchGUI.java
@@ -50,11 +158,27 @@ public class HaushaltsbuchGUI extends JFrame {
         setLayout(new BorderLayout());
 
         JMenuBar menuBar = new JMenuBar();
+        JMenu fileMenu = new JMenu("Datei");
+
+        JMenuItem importItem = new JMenuItem("CSV importieren...");
+        importItem.addActionListener(e -> {
+            if (!unavailableInJournalMode()) {
+                UIMenuHelper.openImportWindow(this, categories, dataAccess, this::loadData);
+            }
+        });
+        fileMenu.add(importItem);
+
+        JMenuItem summaryItem = new JMenuItem("Monatsübersicht");
+        summaryItem.addActionListener(e -> new MonthlySummaryWindow(this, categories, dataAccess));
+        fileMenu.add(summaryItem);
+        menuBar.add(fileMenu);
+
         JMenu settingsMenu = new JMenu("Settings");
 
         JMenuItem neueKategorieItem = new JMenuItem("Kategorien");
         neueKategorieItem.addActionListener(e ->
-                UIMenuHelper.openCategoryWindow(this, conn, this::loadCategories, this::loadData)
+                UIMenuHelper.openCategoryWindow(this, categories, repository, dataAccess, tableModel::categoryTypeChanged,
+                        ids -> tableModel.applyChanges(new BookingStore(0), ids))
         );
         settingsMenu.add(neueKategorieItem);
 
@@ -66,92 +190,100 @@ public class HaushaltsbuchGUI extends JFrame {
         );
         settingsMenu.add(setDateItem);
 
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnose");
+        diagnosticsItem.addActionListener(e -> new DiagnosticsWindow(this));
+        settingsMenu.add(diagnosticsItem);
+
+        JMenuItem schemaItem = new JMenuItem("Schema prüfen");
+        schemaItem.addActionListener(e -> {
+            if (!unavailableInJournalMode()) {
+                verifySchema(true);
+            }
+        });
+        settingsMenu.add(schemaItem);
+
         menuBar.add(settingsMenu);
         setJMenuBar(menuBar);
 
-        String[] columns = {
-                BuchungFeld.ID.name(),
-                BuchungFeld.INFO.name(),
-                TransactionType.EINZAHLUNG.name(),
-                TransactionType.AUSZAHLUNG.name(),
-                BuchungFeld.DATUM.name(),
-                KategorieFeld.BEZEICHNUNG.name()
-        };
+        tableModel = new BookingTableModel(repository, dataAccess, categories, this::isEditableDate);
 
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                if (column == 1 || column == 2 || column == 3) {
-                    Object dateObj = getValueAt(row, 4);
-                    if (dateObj instanceof LocalDate entryDate) {
-                        return isEditableDate(entryDate);
-                    }
-                }
-                return false;
-            }
-        };
-
-        tableModel.addTableModelListener(e -> {
-            if (e.getType() == TableModelEvent.UPDATE) {
-                int row = e.getFirstRow();
-                int column = e.getColumn();
-                String newValue = tableModel.getValueAt(row, column).toString();
-                updateDatabase(row, column, newValue);
-            }
-        });
+        // Cell edits are written behind in batches
+        editQueue.attach(tableModel);
+
+        // Sums of the shown bookings, kept up to date on reloads, searches and edits
+        totalsLabel = new JLabel();
+        tableModel.addTableModelListener(e -> updateTotals());
 
         buchungenTable = new JTable(tableModel);
         buchungenTable.getColumnModel().getColumn(0).setMinWidth(0);
         buchungenTable.getColumnModel().getColumn(0).setMaxWidth(0);
         buchungenTable.getColumnModel().getColumn(0).setWidth(0);
-        buchungenTable.setAutoCreateRowSorter(true);
-        sorter = new TableRowSorter<>(tableModel);
+        sorter = new BookingRowSorter(tableModel);
         buchungenTable.setRowSorter(sorter);
 
         JScrollPane scrollPane = new JScrollPane(buchungenTable);
 
+        // Keystrokes within the debounce window are coalesced into a single search
+        searchTimer = new Timer(AppConfig.getInt("search.debounceMillis", 300), e -> searchBooking());
+        searchTimer.setRepeats(false);
+
         searchField = new JTextField();
         searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                searchBooking();
+                searchTimer.restart();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                searchBooking();
+                searchTimer.restart();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                searchBooking();
+                searchTimer.restart();
             }
         });
 
-        startDatePicker = new JXDatePicker();
-        endDatePicker = new JXDatePicker();
+        // SwingX is loaded when a picker is first used
+        startDatePicker = new LazyDatePicker();
+        endDatePicker = new LazyDatePicker();
         startDatePicker.addActionListener(e -> searchBooking());
         endDatePicker.addActionListener(e -> searchBooking());
 
         resetButton = new JButton("Reset All");
         resetButton.addActionListener(e -> resetFilters());
 
-        JButton copyMarkdownButton = new JButton("Copy to Markdown");
-        copyMarkdownButton.addActionListener(e -> {
-            String markdown = convertTableToMarkdown();
-            StringSelection selection = new StringSelection(markdown);
-            Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-            clipboard.setContents(selection, selection);
-            UIHelper.showInfoDialog(this, "Table copied to clipboard in Markdown format!");
-        });
+        JButton exportButton = new JButton("Exportieren...");
+        exportButton.addActionListener(e -> exportBookings());
 
         JButton customSQLButton = new JButton("Custom SQL");
-        customSQLButton.addActionListener(e -> openSQLDialog());
+        customSQLButton.addActionListener(e -> {
+            if (!unavailableInJournalMode()) {
+                openSQLDialog();
+            }
+        });
+
+        // Shown while database work is running in the background
+        busyIndicator = new JProgressBar();
+        busyIndicator.setIndeterminate(true);
+        busyIndicator.setVisible(false);
+        dataAccess.addBusyListener(busy -> {
+            busyIndicator.setVisible(busy);
+            setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        });
+
+        // Shown when the schema check finds problems, without interrupting the start
+        schemaNotice = new JButton();
+        schemaNotice.setForeground(Color.RED);
+        schemaNotice.setVisible(false);
+        schemaNotice.addActionListener(e -> verifySchema(true));
 
-        // Add the button to the appropriate panel
         JPanel buttonPanel = new JPanel();
-        buttonPanel.add(copyMarkdownButton);
+        buttonPanel.add(exportButton);
         buttonPanel.add(customSQLButton);
+        buttonPanel.add(busyIndicator);
+        buttonPanel.add(schemaNotice);
 
         // Add buttonPanel to the main UI layout
         add(buttonPanel, BorderLayout.SOUTH);
@@ -173,6 +305,7 @@ public class HaushaltsbuchGUI extends JFrame {
 
         JPanel tablePanel = new JPanel(new BorderLayout());
         tablePanel.add(scrollPane, BorderLayout.CENTER);
+        tablePanel.add(totalsLabel, BorderLayout.NORTH);
         tablePanel.add(filterPanel, BorderLayout.SOUTH);
 
         JPanel inputPanel = new JPanel(new GridLayout(4, 2, 10, 10));
@@ -180,7 +313,7 @@ public class HaushaltsbuchGUI extends JFrame {
         betragField = new JTextField();
         categoryDropdown = new JComboBox<>();
 
-        loadCategories();
+        categories.addListener(this::fillCategoryDropdown);
 
         JButton addButton = new JButton("Hinzufügen");
         addButton.addActionListener(e -> addBooking());
@@ -199,250 +332,331 @@ public class HaushaltsbuchGUI extends JFrame {
 
         add(splitPane, BorderLayout.CENTER);
 
+        // Pending edits are written when the window loses focus or is closed
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowDeactivated(WindowEvent e) {
+                editQueue.flush();
+            }
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                editQueue.flushNow();
+                InfoIndex.save();
+                saveSnapshot();
+            }
+        });
+
         setSize(900, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setVisible(true);
     }
 
+    // Missing indexes and full table scans found at startup are announced by a button next to the busy
+    // indicator; the list is shown on request
+    private void verifySchema(boolean showResult) {
+        dataAccess.submit("schema", SchemaManager::verify, problems -> {
+            schemaNotice.setText(String.format("Schema: %d Probleme", problems.size()));
+            schemaNotice.setToolTipText(String.join(" | ", problems));
+            schemaNotice.setVisible(!problems.isEmpty());
+            if (showResult) {
+                UIHelper.showInfoDialog(this, problems.isEmpty()
+                        ? "Alle Indizes vorhanden, keine vollständigen Tabellenscans."
+                        : String.join("\n", problems));
+            }
+        }, Throwable::printStackTrace);
+    }
+
+    // Search works without the index until it is ready
+    private void loadInfoIndex() {
+        dataAccess.submit("index", () -> {
+            InfoIndex.initialize();
+            return null;
+        }, ignored -> {
+        }, Throwable::printStackTrace);
+    }
+
     private void loadCategories() {
+        dataAccess.submit("categories", () -> {
+            categories.load();
+            return null;
+        }, ignored -> startupLoaded(), Throwable::printStackTrace);
+    }
+
+    // Rebuilds the dropdown from the registry, keeping the selection if the category still exists
+    private void fillCategoryDropdown() {
+        Object selected = categoryDropdown.getSelectedItem();
         categoryDropdown.removeAllItems();
-        try (Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT Bezeichnung, Einzahlung_Auszahlung FROM Kategorie");
-            while (rs.next()) {
-                String bezeichnung = rs.getString("Bezeichnung");
-                int einAus = rs.getInt("Einzahlung_Auszahlung");
-                String suffix = (einAus == TransactionType.EINZAHLUNG.getValue()) ? " (E)" : " (A)";
-                categoryDropdown.addItem(bezeichnung + suffix);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (Category category : categories.all()) {
+            categoryDropdown.addItem(category.label());
+        }
+        categoryDropdown.setSelectedItem(selected);
+    }
+
+    private void updateTotals() {
+        BookingRepository.Summary summary = tableModel.getSummary();
+        NumberFormat currency = NumberFormat.getCurrencyInstance(Locale.GERMANY);
+        totalsLabel.setText(String.format(" %d Buchungen | Einnahmen: %s | Ausgaben: %s | Saldo: %s",
+                summary.count(),
+                currency.format(BookingStore.toBetrag(summary.incomeCents())),
+                currency.format(BookingStore.toBetrag(summary.expenseCents())),
+                currency.format(BookingStore.toBetrag(summary.incomeCents() - summary.expenseCents()))));
+    }
+
+    // Keeps all bookings for the next start, if they are all loaded
+    private void saveSnapshot() {
+        BookingStore bookings = syncedVersion >= 0 ? tableModel.allBookings() : null;
+        if (bookings != null) {
+            BookingSnapshot.write(syncedVersion, categories.all(), bookings);
         }
     }
 
     private void loadData() {
-        try {
-            String sql = "SELECT b.ID, b.Info, k.Einzahlung_Auszahlung, b.Betrag, b.Datum, k.Bezeichnung " +
-                    "FROM Buchungen b JOIN Kategorie k ON b.KategorieID = k.ID";
-            ResultSet rs = executeQuery(sql);
-            loadDataFromResultSet(rs);
-        } catch (SQLException e) {
-            e.printStackTrace();
+        tableModel.reload(BookingFilter.NONE);
+    }
+
+    // Shows the changes of other clients, keeping the selected booking selected. A running cell edit is
+    // saved first, as its row may move. Changed categories may change the type of bookings, so then
+    // the bookings are reloaded after the categories.
+    private void applyRemoteChanges(DeltaSync.Changes changes) {
+        syncedVersion = changes.version();
+        if (buchungenTable.isEditing()) {
+            buchungenTable.getCellEditor().stopCellEditing();
+        }
+        if (changes.categories()) {
+            dataAccess.submit("categories", () -> {
+                categories.load();
+                return null;
+            }, ignored -> tableModel.refresh(), Throwable::printStackTrace);
+            return;
+        }
+        int selectedRow = buchungenTable.getSelectedRow();
+        Object selectedId = selectedRow >= 0
+                ? tableModel.getValueAt(buchungenTable.convertRowIndexToModel(selectedRow), BookingTableModel.COLUMN_ID) : null;
+        tableModel.applyChanges(changes.bookings(), changes.deletedIds());
+        int row = selectedId != null ? tableModel.findRow((Integer) selectedId) : -1;
+        if (row >= 0) {
+            int viewRow = buchungenTable.convertRowIndexToView(row);
+            buchungenTable.setRowSelectionInterval(viewRow, viewRow);
         }
     }
 
     void addBooking() {
         String info = infoField.getText();
         String betragStr = betragField.getText();
-        String category = (String) categoryDropdown.getSelectedItem();
+        Category category = categories.byLabel((String) categoryDropdown.getSelectedItem());
 
         if (info.isEmpty() || betragStr.isEmpty()) {
             UIHelper.showErrorDialog(this, "Alle Felder müssen ausgefüllt werden!");
             return;
         }
+        if (category == null) {
+            UIHelper.showErrorDialog(this, "Kategorie nicht gefunden.");
+            return;
+        }
 
+        double betrag;
         try {
-            double betrag = Double.parseDouble(betragStr);
-            int categoryId = getCategoryID(category);
-            LocalDate date = (customDate != null) ? customDate : LocalDate.now();
-
-            String sql = "INSERT INTO Buchungen (Datum, Info, Betrag, KategorieID) VALUES (?, ?, ?, ?)";
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setDate(1, Date.valueOf(date));
-            pstmt.setString(2, info);
-            pstmt.setDouble(3, betrag);
-            pstmt.setInt(4, categoryId);
-            pstmt.executeUpdate();
+            betrag = Double.parseDouble(betragStr);
+        } catch (NumberFormatException ex) {
+            UIHelper.showErrorDialog(this, "Ungültiger Betrag!");
+            return;
+        }
+        LocalDate date = (customDate != null) ? customDate : LocalDate.now();
 
-            tableModel.setRowCount(0);
-            loadData();
+        dataAccess.submit(() -> repository.insert(date, info, betrag, category.id()), id -> {
+            tableModel.addBooking(id, date, info, betrag, category);
 
             UIHelper.showInfoDialog(this, "Buchung erfolgreich hinzugefügt!");
 
             infoField.setText("");
             betragField.setText("");
             categoryDropdown.setSelectedIndex(-1);
-
-        } catch (NumberFormatException ex) {
-            UIHelper.showErrorDialog(this, "Ungültiger Betrag!");
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
-    }
-
-    private int getCategoryID(String category) throws SQLException {
-        // Remove the suffix "(A)" or "(E)" from the category name
-        if (category.endsWith(" (A)") || category.endsWith(" (E)")) {
-            category = category.substring(0, category.length() - 4);
-        }
-
-        String sql = "SELECT ID FROM Kategorie WHERE Bezeichnung = ?";
-        PreparedStatement pstmt = conn.prepareStatement(sql);
-        pstmt.setString(1, category);
-        ResultSet rs = pstmt.executeQuery();
-        if (rs.next()) {
-            return rs.getInt("ID");
-        } else {
-            throw new SQLException("Kategorie nicht gefunden.");
-        }
+        }, Throwable::printStackTrace);
     }
 
     private void searchBooking() {
+        searchTimer.stop();
         String searchText = searchField.getText();
         LocalDate startDate = startDatePicker.getDate() != null ? startDatePicker.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : null;
         LocalDate endDate = endDatePicker.getDate() != null ? endDatePicker.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : null;
 
-        try {
-            String sql = "SELECT b.ID, b.Info, k.Einzahlung_Auszahlung, b.Betrag, b.Datum, k.Bezeichnung " +
-                    "FROM Buchungen b JOIN Kategorie k ON b.KategorieID = k.ID WHERE 1=1";
-            if (!searchText.isEmpty()) {
-                sql += " AND b.Info LIKE '%" + searchText + "%'";
-            }
-            if (startDate != null) {
-                sql += " AND b.Datum >= '" + Date.valueOf(startDate) + "'";
-            }
-            if (endDate != null) {
-                sql += " AND b.Datum <= '" + Date.valueOf(endDate) + "'";
-            }
-            ResultSet rs = executeQuery(sql);
-            loadDataFromResultSet(rs);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    void updateDatabase(int row, int column, String newValue) {
-        try {
-            int id = (int) tableModel.getValueAt(row, 0);
-            String columnNameStr = tableModel.getColumnName(column);
-
-            if (columnNameStr.equals(TransactionType.EINZAHLUNG.name()) || columnNameStr.equals(TransactionType.AUSZAHLUNG.name())) {
-                columnNameStr = BuchungFeld.BETRAG.name();
-            }
-
-            BuchungFeld columnName;
-            try {
-                columnName = BuchungFeld.valueOf(columnNameStr);
-            } catch (IllegalArgumentException e) {
-                throw new SQLException("Unknown column: " + columnNameStr);
-            }
-
-            String sql;
-            PreparedStatement pstmt;
-
-            switch (columnName) {
-                case DATUM:
-                    LocalDate newDate = LocalDate.parse(newValue);
-                    sql = "UPDATE Buchungen SET Datum = ? WHERE ID = ?";
-                    pstmt = conn.prepareStatement(sql);
-                    pstmt.setDate(1, Date.valueOf(newDate));
-                    pstmt.setInt(2, id);
-                    break;
-                case INFO:
-                    sql = "UPDATE Buchungen SET Info = ? WHERE ID = ?";
-                    pstmt = conn.prepareStatement(sql);
-                    pstmt.setString(1, newValue);
-                    pstmt.setInt(2, id);
-                    break;
-                case BETRAG:
-                    sql = "UPDATE Buchungen SET Betrag = ? WHERE ID = ?";
-                    pstmt = conn.prepareStatement(sql);
-                    pstmt.setDouble(1, Double.parseDouble(newValue));
-                    pstmt.setInt(2, id);
-                    break;
-                default:
-                    throw new SQLException("Unknown column: " + columnName);
-            }
-
-            pstmt.executeUpdate();
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
-    }
-
-    void loadDataFromResultSet(ResultSet rs) throws SQLException {
-        tableModel.setRowCount(0);
-        while (rs.next()) {
-            int id = rs.getInt("ID");
-            String info = rs.getString("Info");
-            double betrag = rs.getDouble("Betrag");
-            TransactionType einzahlungAuszahlung = TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung"));
-            LocalDate datum = rs.getDate("Datum").toLocalDate();
-            String kategorie = rs.getString("Bezeichnung");
-
-            addRowToTableModel(id, info, betrag, einzahlungAuszahlung, datum, kategorie);
+        // Time spent on the EDT; a reload in the background is measured as table.refresh
+        try (Metrics.Sample sample = Metrics.start("ui.searchBooking")) {
+            tableModel.setFilter(new BookingFilter(searchText, startDate, endDate));
+            sample.rows(tableModel.getRowCount());
         }
     }
 
-    void addRowToTableModel(int id, String info, double betrag, TransactionType einzahlungAuszahlung, LocalDate datum, String kategorie) {
-        Object[] row = new Object[6];
-        row[0] = id;
-        row[1] = info;
-        if (einzahlungAuszahlung == TransactionType.EINZAHLUNG) {
-            row[2] = betrag;
-            row[3] = null;
-        } else {
-            row[2] = null;
-            row[3] = betrag;
-        }
-        row[4] = datum;
-        row[5] = kategorie;
-        tableModel.addRow(row);
+    private void showEditFailures(List<String> failures) {
+        UIHelper.showErrorDialog(this, "Änderungen konnten nicht gespeichert werden:\n" + String.join("\n", failures));
     }
 
     private void addRightClickMenu() {
         JPopupMenu popupMenu = new JPopupMenu();
         JMenuItem deleteItem = new JMenuItem("Löschen");
 
-        deleteItem.addActionListener(e -> {
-            int selectedRow = buchungenTable.getSelectedRow();
-            if (selectedRow != -1) {
-                int modelRow = buchungenTable.convertRowIndexToModel(selectedRow);
-                int id = (int) tableModel.getValueAt(modelRow, 0);
-
+        deleteItem.addActionListener(e -> withSelectedBookings(selected -> {
+            if (selected.size() == 1) {
                 int confirm = JOptionPane.showConfirmDialog(this, "Sind Sie sicher, dass Sie diese Buchung löschen möchten?", "Bestätigung", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    deleteBooking(id);
-                    tableModel.removeRow(modelRow);
+                    deleteBooking(selected.id(0), tableModel.findRow(selected.id(0)));
+                }
+            } else if (selected.size() > 1) {
+                int confirm = JOptionPane.showConfirmDialog(this, String.format("Sind Sie sicher, dass Sie diese %,d Buchungen löschen möchten?", selected.size()), "Bestätigung", JOptionPane.YES_NO_OPTION);
+                if (confirm == JOptionPane.YES_OPTION) {
+                    deleteBookings(ids(selected, date -> true));
                 }
             }
-        });
+        }));
+
+        JMenuItem categoryItem = new JMenuItem("Kategorie ändern...");
+        categoryItem.addActionListener(e -> withSelectedBookings(this::moveSelectedBookings));
+
+        JMenuItem shiftItem = new JMenuItem("Datum verschieben...");
+        shiftItem.addActionListener(e -> withSelectedBookings(this::shiftSelectedBookings));
 
         popupMenu.add(deleteItem);
+        popupMenu.add(categoryItem);
+        popupMenu.add(shiftItem);
 
+        buchungenTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         buchungenTable.setComponentPopupMenu(popupMenu);
         buchungenTable.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (e.isPopupTrigger()) {
-                    int row = buchungenTable.rowAtPoint(e.getPoint());
-                    buchungenTable.setRowSelectionInterval(row, row);
+                    selectRowAt(e.getPoint());
                 }
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
                 if (e.isPopupTrigger()) {
-                    int row = buchungenTable.rowAtPoint(e.getPoint());
-                    buchungenTable.setRowSelectionInterval(row, row);
+                    selectRowAt(e.getPoint());
                 }
             }
         });
     }
 
+    // A right-click into the selection keeps it, so that the menu applies to all selected rows
+    private void selectRowAt(Point point) {
+        int row = buchungenTable.rowAtPoint(point);
+        if (row >= 0 && !buchungenTable.isRowSelected(row)) {
+            buchungenTable.setRowSelectionInterval(row, row);
+        }
+    }
+
+    // Passes the selected bookings to the action on the EDT; rows on pages that are not loaded yet are read first
+    private void withSelectedBookings(Consumer<BookingStore> action) {
+        int[] rows = Arrays.stream(buchungenTable.getSelectedRows()).map(buchungenTable::convertRowIndexToModel).toArray();
+        if (rows.length == 0) {
+            return;
+        }
+        tableModel.loadRows(rows, action, e -> {
+            e.printStackTrace();
+            UIHelper.showErrorDialog(this, "Die Auswahl konnte nicht gelesen werden: " + e.getMessage());
+        });
+    }
+
+    // IDs of the bookings whose date passes the test
+    private static int[] ids(BookingStore bookings, Predicate<LocalDate> dates) {
+        return IntStream.range(0, bookings.size())
+                .filter(row -> dates.test(bookings.date(row)))
+                .map(bookings::id)
+                .toArray();
+    }
+
     private void setCustomDate(LocalDate date) {
         customDate = date;
     }
 
-    void deleteBooking(int id) {
-        try {
-            String sql = "DELETE FROM Buchungen WHERE ID = ?";
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-        } catch (SQLException ex) {
-            ex.printStackTrace();
+    void deleteBooking(int id, int modelRow) {
+        editQueue.discard(id);
+        dataAccess.submit(() -> {
+            repository.delete(id);
+            return null;
+        }, ignored -> tableModel.removeBooking(id, modelRow), Throwable::printStackTrace);
+    }
+
+    // Deletes the bookings in one transaction and removes them from the table in one step
+    void deleteBookings(int[] ids) {
+        for (int id : ids) {
+            editQueue.discard(id);
+        }
+        dataAccess.submit(() -> repository.deleteAll(ids), deleted -> tableModel.applyChanges(new BookingStore(0), ids), e -> {
+            e.printStackTrace();
+            UIHelper.showErrorDialog(this, "Fehler beim Löschen der Buchungen!");
+        });
+    }
+
+    // Like cell edits, bulk changes only apply to bookings with an editable date
+    private void moveSelectedBookings(BookingStore selected) {
+        int[] ids = ids(selected, this::isEditableDate);
+        if (!checkEditable(selected, ids)) {
+            return;
+        }
+        JComboBox<String> dropdown = new JComboBox<>();
+        for (Category category : categories.all()) {
+            dropdown.addItem(category.label());
+        }
+        int confirm = JOptionPane.showConfirmDialog(this, dropdown, String.format("Kategorie für %,d Buchungen ändern", ids.length), JOptionPane.OK_CANCEL_OPTION);
+        Category category = categories.byLabel((String) dropdown.getSelectedItem());
+        if (confirm != JOptionPane.OK_OPTION || category == null) {
+            return;
+        }
+        dataAccess.submit(() -> {
+            repository.moveToCategory(ids, category.id());
+            return null;
+        }, ignored -> tableModel.bookingsMoved(ids, category), e -> {
+            e.printStackTrace();
+            UIHelper.showErrorDialog(this, "Fehler beim Ändern der Kategorie!");
+        });
+    }
+
+    private void shiftSelectedBookings(BookingStore selected) {
+        int[] ids = ids(selected, this::isEditableDate);
+        if (!checkEditable(selected, ids)) {
+            return;
+        }
+        JSpinner daysSpinner = new JSpinner(new SpinnerNumberModel(1, -3650, 3650, 1));
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(new JLabel("Tage (negativ = zurück):"), BorderLayout.WEST);
+        panel.add(daysSpinner, BorderLayout.CENTER);
+        int confirm = JOptionPane.showConfirmDialog(this, panel, String.format("Datum von %,d Buchungen verschieben", ids.length), JOptionPane.OK_CANCEL_OPTION);
+        int days = (Integer) daysSpinner.getValue();
+        if (confirm != JOptionPane.OK_OPTION || days == 0) {
+            return;
+        }
+        // No booking may be moved before the reference date
+        for (int row = 0; row < selected.size(); row++) {
+            LocalDate date = selected.date(row);
+            if (isEditableDate(date) && !isEditableDate(date.plusDays(days))) {
+                UIHelper.showErrorDialog(this, "Buchungen können nicht vor das aktuelle Datum verschoben werden!");
+                return;
+            }
+        }
+        dataAccess.submit(() -> {
+            repository.shiftDates(ids, days);
+            return null;
+        }, ignored -> tableModel.bookingsShifted(ids, days), e -> {
+            e.printStackTrace();
+            UIHelper.showErrorDialog(this, "Fehler beim Verschieben der Buchungen!");
+        });
+    }
+
+    // False if none of the selected bookings can be changed; tells how many are skipped otherwise
+    private boolean checkEditable(BookingStore selected, int[] ids) {
+        int skipped = selected.size() - ids.length;
+        if (ids.length == 0) {
+            UIHelper.showErrorDialog(this, "Buchungen vor dem aktuellen Datum können nicht geändert werden!");
+            return false;
+        }
+        if (skipped > 0) {
+            UIHelper.showInfoDialog(this, String.format("%,d Buchungen vor dem aktuellen Datum werden nicht geändert.", skipped));
         }
+        return true;
     }
 
     // Add this method to HaushaltsbuchGUI class
@@ -453,53 +667,69 @@ public class HaushaltsbuchGUI extends JFrame {
                 if (e.getClickCount() == 2) {
                     int row = buchungenTable.rowAtPoint(e.getPoint());
                     int column = buchungenTable.columnAtPoint(e.getPoint());
-                    if (column == buchungenTable.getColumnModel().getColumnIndex(KategorieFeld.BEZEICHNUNG.name())) {
-                        String bezeichnung = (String) tableModel.getValueAt(row, column);
-                        openNewTable(bezeichnung);
+                    if (row != -1 && column == buchungenTable.getColumnModel().getColumnIndex(KategorieFeld.BEZEICHNUNG.name())) {
+                        int modelRow = buchungenTable.convertRowIndexToModel(row);
+                        Category category = categories.byId(tableModel.getCategoryIdAt(modelRow));
+                        if (category != null) {
+                            openNewTable(category);
+                        }
                     }
                 }
             }
         });
     }
 
-    private void openNewTable(String bezeichnung) {
-        new DetailsTable(this, conn, bezeichnung);
+    private void openNewTable(Category category) {
+        new DetailsTable(this, category);
     }
 
     private void resetFilters() {
         searchField.setText("");
+        searchTimer.stop();
         startDatePicker.setDate(null);
         endDatePicker.setDate(null);
         loadData();
     }
 
-    private String convertTableToMarkdown() {
-        StringBuilder markdown = new StringBuilder();
-        int columnCount = tableModel.getColumnCount();
-        int rowCount = tableModel.getRowCount();
-
-        // Add header
-        for (int col = 0; col < columnCount; col++) {
-            markdown.append("| ").append(tableModel.getColumnName(col)).append(" ");
+    // Writes the rows of the current search and date filter to a file in the background
+    private void exportBookings() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setAcceptAllFileFilterUsed(false);
+        for (BookingExporter.Format format : BookingExporter.Format.values()) {
+            chooser.addChoosableFileFilter(new FileNameExtensionFilter(format.name() + " (*." + format.getExtension() + ")", format.getExtension()));
         }
-        markdown.append("|\n");
-
-        // Add separator
-        for (int col = 0; col < columnCount; col++) {
-            markdown.append("|---");
+        JCheckBox gzipBox = new JCheckBox("gzip-komprimiert");
+        chooser.setAccessory(gzipBox);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
-        markdown.append("|\n");
 
-        // Add rows
-        for (int row = 0; row < rowCount; row++) {
-            for (int col = 0; col < columnCount; col++) {
-                Object value = tableModel.getValueAt(row, col);
-                markdown.append("| ").append(value != null ? value.toString() : "").append(" ");
-            }
-            markdown.append("|\n");
+        String name = chooser.getSelectedFile().getName();
+        BookingExporter.Format format = BookingExporter.Format.fromFileName(name);
+        if (format == null) {
+            // No known extension: take the format of the selected filter
+            String extension = ((FileNameExtensionFilter) chooser.getFileFilter()).getExtensions()[0];
+            format = BookingExporter.Format.fromFileName("." + extension);
+            name += "." + extension;
         }
+        boolean gzip = gzipBox.isSelected() || name.toLowerCase(Locale.ROOT).endsWith(".gz");
+        if (gzip && !name.toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            name += ".gz";
+        }
+        Path file = chooser.getSelectedFile().toPath().resolveSibling(name);
 
-        return markdown.toString();
+        BookingExporter.Format exportFormat = format;
+        BookingTableModel.RowSource rows = tableModel.rows();
+        String[] columns = new String[tableModel.getColumnCount()];
+        for (int col = 0; col < columns.length; col++) {
+            columns[col] = tableModel.getColumnName(col);
+        }
+        dataAccess.submit("export", () -> BookingExporter.export(rows, columns, file, exportFormat, gzip),
+                count -> UIHelper.showInfoDialog(this, count + " Buchungen exportiert nach " + file),
+                e -> {
+                    e.printStackTrace();
+                    UIHelper.showErrorDialog(this, e.getMessage());
+                });
     }
 
     private void openSQLDialog() {
@@ -522,15 +752,9 @@ public class HaushaltsbuchGUI extends JFrame {
             }
 
             if (isValidSQL(userSql)) {
-                try {
-                    userSql = translateSQL(userSql);
-                    ResultSet rs = executeQuery(userSql);
-                    displayQueryResults(rs);
-                    sqlDialog.dispose();
-                } catch (SQLException ex) {
-                    UIHelper.showErrorDialog(this, "Error executing SQL query!");
-                    ex.printStackTrace();
-                }
+                sqlDialog.dispose();
+                // Streams the result into its own window
+                new SqlResultDialog(this, dataAccess, translateSQL(userSql));
             } else {
                 UIHelper.showErrorDialog(this, "Invalid SQL query! Only SELECT statements are allowed.");
             }
@@ -552,37 +776,6 @@ public class HaushaltsbuchGUI extends JFrame {
         return sql.replaceAll("(?i)einzahlen|auszahlen", "Betrag");
     }
 
-    private void displayQueryResults(ResultSet rs) throws SQLException {
-        DefaultTableModel model = new DefaultTableModel();
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-
-        for (int i = 1; i <= columnCount; i++) {
-            model.addColumn(metaData.getColumnLabel(i));
-        }
-
-        while (rs.next()) {
-            Object[] row = new Object[columnCount];
-            for (int i = 0; i < columnCount; i++) {
-                row[i] = rs.getObject(i + 1);
-            }
-            model.addRow(row);
-        }
-
-        JTable resultTable = new JTable(model);
-        JDialog resultDialog = new JDialog(this, "Query Results", true);
-        resultDialog.setLayout(new BorderLayout());
-        resultDialog.add(new JScrollPane(resultTable), BorderLayout.CENTER);
-        resultDialog.pack();
-        resultDialog.setLocationRelativeTo(this);
-        resultDialog.setVisible(true);
-    }
-
-    private ResultSet executeQuery(String sql) throws SQLException {
-        Statement stmt = conn.createStatement();
-        return stmt.executeQuery(sql);
-    }
-
     private boolean isEditableDate(LocalDate date) {
         LocalDate referenceDate = (customDate != null) ? customDate : LocalDate.now();
         return !date.isBefore(referenceDate);
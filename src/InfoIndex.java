@@ -0,0 +1,521 @@
+// src/InfoIndex.java
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Trigram index over the info texts of all bookings, so that substring searches need no database round trip.
+// Texts are normalized like BookingFilter.normalize. Every trigram maps to the ascending IDs of the bookings
+// containing it, stored as delta-encoded varints. A search intersects the lists of the trigrams of the search
+// text and verifies the candidates against the indexed text.
+// Built in the background at startup, or read from a snapshot file if that still matches the table.
+// Changed and deleted texts stay in the lists until they make up a quarter of all entries; the
+// verification skips them until then.
+public class InfoIndex {
+    private static final Path SNAPSHOT = Path.of(AppConfig.getString("search.indexFile", "haushaltsbuch.index"));
+    private static final int SNAPSHOT_MAGIC = 0x48424958;
+    private static final int SNAPSHOT_VERSION = 1;
+    // Candidates are verified directly once the intersection is this small
+    private static final int VERIFY_DIRECTLY = 64;
+    private static final int MIN_STALE_ENTRIES = 10_000;
+
+    // Row count, highest ID and sum of the CRC32 of "ID:Info" of all bookings (0 if the engine cannot compute it)
+    private record Stamp(int count, int maxId, long checksum) {
+    }
+
+    // Null until the index is built; changes made meanwhile are queued in pending and replayed
+    private static InfoIndex current;
+    private static List<Consumer<InfoIndex>> pending = new ArrayList<>();
+
+    private final StringPool texts = new StringPool();
+    // Indexed by booking ID: reference of the normalized text (-1 = no booking) and CRC32 of "ID:Info"
+    private int[] refs = new int[1024];
+    private int[] crcs = new int[1024];
+    private int maxId;
+    private int count;
+    private long checksum;
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private long entries;
+    private long staleEntries;
+
+    private InfoIndex() {
+        Arrays.fill(refs, -1);
+    }
+
+    // Loads the snapshot or builds the index from the table, then catches up with rows added since
+    public static void initialize() throws SQLException {
+        InfoIndex index;
+        try {
+            Stamp stamp = readStamp();
+            index = readSnapshot(stamp);
+            if (index == null) {
+                index = build();
+            }
+        } catch (SQLException | RuntimeException e) {
+            synchronized (InfoIndex.class) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (InfoIndex.class) {
+            for (Consumer<InfoIndex> change : pending) {
+                change.accept(index);
+            }
+            pending = null;
+            current = index;
+        }
+        catchUp();
+    }
+
+    // For bookings that are not stored in the database; put() and remove() are ignored from now on
+    public static synchronized void disable() {
+        pending = null;
+    }
+
+    public static synchronized boolean isReady() {
+        return current != null;
+    }
+
+    // Ascending IDs of the bookings whose info contains the text, or null while the index is not ready
+    public static synchronized int[] find(String text) {
+        return current != null ? current.search(BookingFilter.normalize(text)) : null;
+    }
+
+    // Indexes a new or changed info text
+    public static synchronized void put(int id, String info) {
+        apply(index -> index.index(id, info));
+    }
+
+    public static synchronized void remove(int id) {
+        apply(index -> index.unindex(id));
+    }
+
+    private static void apply(Consumer<InfoIndex> change) {
+        if (current != null) {
+            change.accept(current);
+        } else if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    // Indexes bookings inserted without going through put(), e.g. by the CSV import
+    public static void catchUp() throws SQLException {
+        int after;
+        synchronized (InfoIndex.class) {
+            if (current == null) {
+                return;
+            }
+            after = current.maxId;
+        }
+        readTexts(after, InfoIndex::put);
+    }
+
+    // Writes the snapshot file; called on exit
+    public static synchronized void save() {
+        if (current == null) {
+            return;
+        }
+        Path temp = SNAPSHOT.resolveSibling(SNAPSHOT.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            current.write(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(temp, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static InfoIndex build() throws SQLException {
+        InfoIndex index = new InfoIndex();
+        readTexts(0, index::index);
+        return index;
+    }
+
+    private interface TextConsumer {
+        void accept(int id, String info);
+    }
+
+    private static void readTexts(int afterId, TextConsumer consumer) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT ID, Info FROM Buchungen WHERE ID > ? ORDER BY ID")) {
+            pstmt.setInt(1, afterId);
+            pstmt.setFetchSize(1000);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    private static Stamp readStamp() throws SQLException {
+        String checksum = DatabaseConnection.dialect().infoChecksum();
+        String sql = "SELECT COUNT(*), COALESCE(MAX(ID), 0), " + (checksum != null ? checksum : "0") + " FROM Buchungen";
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return new Stamp(rs.getInt(1), rs.getInt(2), rs.getLong(3));
+        }
+    }
+
+    // The snapshot if it exists and was written for exactly the current table content, otherwise null
+    private static InfoIndex readSnapshot(Stamp stamp) {
+        if (!Files.isRegularFile(SNAPSHOT)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(SNAPSHOT), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                return null;
+            }
+            Stamp written = new Stamp(in.readInt(), in.readInt(), in.readLong());
+            // Without a checksum from the database only count and highest ID can be compared
+            boolean checked = DatabaseConnection.dialect().infoChecksum() != null;
+            if (written.count() != stamp.count() || written.maxId() != stamp.maxId()
+                    || (checked && written.checksum() != stamp.checksum())) {
+                return null;
+            }
+            InfoIndex index = new InfoIndex();
+            index.read(in, written);
+            return index;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(count);
+        out.writeInt(maxId);
+        out.writeLong(checksum);
+
+        // Only texts still referenced, renumbered in order of first use
+        int[] renumbered = new int[texts.size()];
+        Arrays.fill(renumbered, -1);
+        int used = 0;
+        for (int id = 1; id <= maxId; id++) {
+            if (refs[id] >= 0 && renumbered[refs[id]] < 0) {
+                renumbered[refs[id]] = used++;
+            }
+        }
+        out.writeInt(used);
+        for (int id = 1; id <= maxId; id++) {
+            int ref = refs[id];
+            if (ref >= 0 && renumbered[ref] >= 0) {
+                byte[] bytes = texts.get(ref).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                renumbered[ref] = -2 - renumbered[ref];
+            }
+        }
+        for (int id = 1; id <= maxId; id++) {
+            if (refs[id] >= 0) {
+                out.writeInt(id);
+                out.writeInt(-2 - renumbered[refs[id]]);
+                out.writeInt(crcs[id]);
+            }
+        }
+
+        out.writeInt(postings.size());
+        for (Map.Entry<Long, Posting> entry : postings.entrySet()) {
+            Posting posting = entry.getValue();
+            posting.compact();
+            out.writeLong(entry.getKey());
+            out.writeInt(posting.count);
+            out.writeInt(posting.last);
+            out.writeInt(posting.length);
+            out.write(posting.data, 0, posting.length);
+        }
+        out.writeLong(staleEntries);
+    }
+
+    private void read(DataInputStream in, Stamp stamp) throws IOException {
+        int textCount = in.readInt();
+        byte[] buffer = new byte[256];
+        for (int i = 0; i < textCount; i++) {
+            int length = in.readInt();
+            if (length > buffer.length) {
+                buffer = new byte[length];
+            }
+            in.readFully(buffer, 0, length);
+            texts.add(buffer, 0, length);
+        }
+        ensureCapacity(stamp.maxId());
+        for (int i = 0; i < stamp.count(); i++) {
+            int id = in.readInt();
+            refs[id] = in.readInt();
+            crcs[id] = in.readInt();
+        }
+        count = stamp.count();
+        maxId = stamp.maxId();
+        checksum = stamp.checksum();
+
+        int postingCount = in.readInt();
+        for (int i = 0; i < postingCount; i++) {
+            long key = in.readLong();
+            Posting posting = new Posting();
+            posting.count = in.readInt();
+            posting.last = in.readInt();
+            posting.length = in.readInt();
+            posting.data = new byte[Math.max(8, posting.length)];
+            in.readFully(posting.data, 0, posting.length);
+            postings.put(key, posting);
+            entries += posting.count;
+        }
+        staleEntries = in.readLong();
+    }
+
+    private void index(int id, String info) {
+        String original = info == null ? "" : info;
+        ensureCapacity(id);
+        if (refs[id] >= 0) {
+            unindex(id);
+        }
+        String text = BookingFilter.normalize(original);
+        refs[id] = texts.add(text);
+        crcs[id] = crc(id, original);
+        checksum += Integer.toUnsignedLong(crcs[id]);
+        count++;
+        maxId = Math.max(maxId, id);
+        for (long key : trigrams(text)) {
+            if (postings.computeIfAbsent(key, k -> new Posting()).add(id)) {
+                entries++;
+            }
+        }
+    }
+
+    // The posting list entries of the old text become stale
+    private void unindex(int id) {
+        if (id >= refs.length || refs[id] < 0) {
+            return;
+        }
+        staleEntries += trigrams(texts.get(refs[id])).length;
+        checksum -= Integer.toUnsignedLong(crcs[id]);
+        refs[id] = -1;
+        count--;
+        if (staleEntries >= MIN_STALE_ENTRIES && staleEntries * 4 > entries) {
+            rebuildPostings();
+        }
+    }
+
+    private void rebuildPostings() {
+        postings.clear();
+        entries = 0;
+        staleEntries = 0;
+        for (int id = 1; id <= maxId; id++) {
+            if (refs[id] >= 0) {
+                for (long key : trigrams(texts.get(refs[id]))) {
+                    postings.computeIfAbsent(key, k -> new Posting()).add(id);
+                    entries++;
+                }
+            }
+        }
+    }
+
+    private int[] search(String query) {
+        int[] candidates = null;
+        if (query.length() >= 3) {
+            List<Posting> lists = new ArrayList<>();
+            for (long key : trigrams(query)) {
+                Posting posting = postings.get(key);
+                if (posting == null) {
+                    return new int[0];
+                }
+                lists.add(posting);
+            }
+            lists.sort(Comparator.comparingInt(Posting::size));
+            candidates = lists.get(0).ids();
+            for (int i = 1; i < lists.size() && candidates.length > VERIFY_DIRECTLY; i++) {
+                candidates = intersect(candidates, lists.get(i).ids());
+            }
+        }
+
+        // Shorter search texts are matched against every distinct text; 0 = unchecked, 1 = match, 2 = no match
+        byte[] matches = new byte[texts.size()];
+        int[] result = new int[candidates != null ? candidates.length : count];
+        int found = 0;
+        int total = candidates != null ? candidates.length : maxId;
+        for (int i = 0; i < total; i++) {
+            int id = candidates != null ? candidates[i] : i + 1;
+            int ref = refs[id];
+            if (ref < 0) {
+                continue;
+            }
+            if (matches[ref] == 0) {
+                matches[ref] = texts.get(ref).contains(query) ? (byte) 1 : (byte) 2;
+            }
+            if (matches[ref] == 1) {
+                result[found++] = id;
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Distinct trigrams of a normalized text, three UTF-16 chars packed into a long
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] keys = new long[text.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return distinct == keys.length ? keys : Arrays.copyOf(keys, distinct);
+    }
+
+    private static int crc(int id, String info) {
+        CRC32 crc = new CRC32();
+        crc.update((id + ":" + info).getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= refs.length) {
+            int capacity = Math.max(id + 1, refs.length + (refs.length >> 1));
+            int old = refs.length;
+            refs = Arrays.copyOf(refs, capacity);
+            crcs = Arrays.copyOf(crcs, capacity);
+            Arrays.fill(refs, old, capacity, -1);
+        }
+    }
+
+    // Ascending booking IDs as varint-encoded gaps. IDs are assigned in ascending order, so new bookings
+    // are appended; IDs below the last one (changed texts) go to a small unsorted list merged in later.
+    private static final class Posting {
+        private static final int MAX_LATE = 64;
+
+        byte[] data = new byte[8];
+        int length;
+        int count;
+        int last;
+        int[] late = new int[0];
+        int lateCount;
+
+        int size() {
+            return count + lateCount;
+        }
+
+        // False if the ID was the last one added already
+        boolean add(int id) {
+            if (id == last) {
+                return false;
+            }
+            if (id > last) {
+                append(id);
+                return true;
+            }
+            if (lateCount == late.length) {
+                late = Arrays.copyOf(late, Math.max(4, lateCount * 2));
+            }
+            late[lateCount++] = id;
+            if (lateCount >= MAX_LATE) {
+                compact();
+            }
+            return true;
+        }
+
+        private void append(int id) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int gap = id - last;
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            last = id;
+            count++;
+        }
+
+        // Merges the late IDs into the encoded list
+        void compact() {
+            if (lateCount == 0) {
+                return;
+            }
+            int[] all = ids();
+            data = new byte[Math.max(8, length + 5 * lateCount)];
+            length = 0;
+            count = 0;
+            last = 0;
+            late = new int[0];
+            lateCount = 0;
+            for (int id : all) {
+                append(id);
+            }
+        }
+
+        // All IDs ascending and without duplicates
+        int[] ids() {
+            int[] ids = new int[count + lateCount];
+            int id = 0;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                ids[i] = id;
+            }
+            if (lateCount == 0) {
+                return ids;
+            }
+            System.arraycopy(late, 0, ids, count, lateCount);
+            Arrays.sort(ids);
+            int distinct = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+// src/JdbcBookingRepository.java
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// BookingRepository on a JDBC database (MariaDB or embedded H2, see SqlDialect).
+// Every call borrows its own pooled connection, so calls may run concurrently.
+public class JdbcBookingRepository implements BookingRepository {
+    private static final String SELECT = "SELECT b.ID, b.Info, k.Einzahlung_Auszahlung, b.Betrag, b.Datum, b.KategorieID " +
+            "FROM Buchungen b JOIN Kategorie k ON b.KategorieID = k.ID";
+    // Rows are streamed from the server in batches of this size instead of being buffered by the driver
+    private static final int FETCH_SIZE = 1000;
+
+    private interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    // Date, amount and category of a stored booking
+    private record Booked(LocalDate date, long cents, int categoryId) {
+        Booked with(FieldUpdate update) {
+            return switch (update.field()) {
+                case DATUM -> new Booked(LocalDate.parse(update.value()), cents, categoryId);
+                case BETRAG -> new Booked(date, BookingStore.toCents(Double.parseDouble(update.value())), categoryId);
+                default -> this;
+            };
+        }
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private interface Reader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    @Override
+    public Summary summarize(BookingFilter filter) throws SQLException {
+        String sql = "SELECT COUNT(*), " +
+                "COALESCE(SUM(CASE WHEN k.Einzahlung_Auszahlung = 1 THEN b.Betrag ELSE 0 END), 0), " +
+                "COALESCE(SUM(CASE WHEN k.Einzahlung_Auszahlung = 0 THEN b.Betrag ELSE 0 END), 0) " +
+                "FROM Buchungen b JOIN Kategorie k ON b.KategorieID = k.ID" + filter.whereClause();
+        return query(sql, pstmt -> filter.bind(pstmt, 1), rs -> rs.next()
+                ? new Summary(rs.getInt(1), BookingStore.toCents(rs.getDouble(2)), BookingStore.toCents(rs.getDouble(3)))
+                : new Summary(0, 0, 0));
+    }
+
+    // Loads all rows matching the filter into one store; expectedRows sizes the arrays up front
+    @Override
+    public BookingStore loadAll(BookingFilter filter, BookingSort sort, int expectedRows) throws SQLException {
+        return query(SELECT + filter.whereClause() + sort.orderByClause(), pstmt -> {
+            filter.bind(pstmt, 1);
+            pstmt.setFetchSize(FETCH_SIZE);
+        }, rs -> readStore(rs, expectedRows));
+    }
+
+    // Loads one page of table rows. With a start key the page is located by keyset, otherwise by offset.
+    @Override
+    public BookingStore loadPage(BookingFilter filter, BookingSort sort, PageKey start, int offset, int limit) throws SQLException {
+        boolean keyset = start != null && sort.supportsKeyset();
+        String sql = SELECT + filter.whereClause() + (keyset ? sort.keysetCondition() : "")
+                + sort.orderByClause() + " LIMIT ?" + (keyset ? "" : " OFFSET ?");
+        return query(sql, pstmt -> {
+            int index = filter.bind(pstmt, 1);
+            if (keyset) {
+                pstmt.setDate(index++, Date.valueOf(start.datum()));
+                pstmt.setDate(index++, Date.valueOf(start.datum()));
+                pstmt.setInt(index++, start.id());
+            }
+            pstmt.setInt(index++, limit);
+            if (!keyset) {
+                pstmt.setInt(index, offset);
+            }
+        }, rs -> readStore(rs, limit));
+    }
+
+    // Streams all rows of the filter in sort order; the driver holds at most fetchSize rows at a time
+    @Override
+    public void stream(BookingFilter filter, BookingSort sort, int fetchSize, BookingConsumer consumer) throws SQLException {
+        query(SELECT + filter.whereClause() + sort.orderByClause(), pstmt -> {
+            filter.bind(pstmt, 1);
+            pstmt.setFetchSize(fetchSize);
+        }, rs -> {
+            while (rs.next()) {
+                consumer.accept(rs.getInt("ID"), rs.getString("Info"), BookingStore.toCents(rs.getDouble("Betrag")),
+                        TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung")), rs.getDate("Datum").toLocalDate(),
+                        rs.getInt("KategorieID"));
+            }
+            return null;
+        });
+    }
+
+    // Loads the bookings with the given IDs that also match the filter, in no particular order.
+    // The IDs are sent as IN lists padded to a few fixed sizes (see lockRows).
+    @Override
+    public BookingStore loadByIds(int[] ids, BookingFilter filter) throws SQLException {
+        BookingStore store = new BookingStore(ids.length);
+        for (int start = 0; start < ids.length; ) {
+            int size = paddedSize(ids.length - start);
+            int from = start;
+            int to = Math.min(start + size, ids.length);
+            String sql = SELECT + filter.whereClause() + " AND b.ID IN (" + "?, ".repeat(size - 1) + "?)";
+            query(sql, pstmt -> {
+                int index = filter.bind(pstmt, 1);
+                for (int i = 0; i < size; i++) {
+                    pstmt.setInt(index + i, ids[Math.min(from + i, to - 1)]);
+                }
+            }, rs -> readInto(rs, store));
+            start = to;
+        }
+        return store;
+    }
+
+    private static BookingStore readStore(ResultSet rs, int expectedRows) throws SQLException {
+        return readInto(rs, new BookingStore(expectedRows));
+    }
+
+    private static BookingStore readInto(ResultSet rs, BookingStore store) throws SQLException {
+        while (rs.next()) {
+            store.append(rs.getInt("ID"),
+                    BookingStore.toCents(rs.getDouble("Betrag")),
+                    (int) rs.getDate("Datum").toLocalDate().toEpochDay(),
+                    rs.getInt("KategorieID"),
+                    TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung")),
+                    rs.getString("Info"));
+        }
+        return store;
+    }
+
+    // Search and paging statements only differ in their parameters and come from the statement cache of the pool
+    private <T> T query(String sql, Binder binder, Reader<T> reader) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement(sql))) {
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return reader.read(rs);
+            }
+        }
+    }
+
+    // Returns the generated ID of the new booking
+    @Override
+    public int insert(LocalDate date, String info, double betrag, int categoryId) throws SQLException {
+        String sql = "INSERT INTO Buchungen (Datum, Info, Betrag, KategorieID) VALUES (?, ?, ?, ?)";
+        int newId = transaction(conn -> {
+            int id;
+            try (PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))) {
+                pstmt.setDate(1, Date.valueOf(date));
+                pstmt.setString(2, info);
+                pstmt.setDouble(3, betrag);
+                pstmt.setInt(4, categoryId);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Keine ID für die neue Buchung erhalten.");
+                    }
+                    id = keys.getInt(1);
+                }
+            }
+            new MonthlyRollup.Delta().add(date, categoryId, BookingStore.toCents(betrag), 1).apply(conn);
+            ChangeLog.booking(conn, id);
+            return id;
+        });
+        InfoIndex.put(newId, info);
+        return newId;
+    }
+
+    // Applies all updates in one transaction, as one JDBC batch per column. Returns an error message
+    // per update, null if it succeeded. If the batch fails, it is rolled back to the savepoint behind
+    // the row locks and the updates are repeated one by one behind savepoints, so that only the
+    // failing ones are rolled back.
+    @Override
+    public String[] updateAll(List<FieldUpdate> updates) throws SQLException {
+        String[] errors = new String[updates.size()];
+        for (int i = 0; i < updates.size(); i++) {
+            errors[i] = updates.get(i).error();
+        }
+        return transaction(conn -> {
+            // Locks every changed booking; its previous date and amount are needed for the monthly rollup
+            Set<Integer> ids = new HashSet<>();
+            for (int i = 0; i < updates.size(); i++) {
+                if (errors[i] == null) {
+                    ids.add(updates.get(i).id());
+                }
+            }
+            Map<Integer, Booked> current = lockRows(conn, ids);
+            Set<Integer> existing = Set.copyOf(current.keySet());
+            // Rolling back to here keeps the locks, so the rows read above stay current
+            Savepoint locked = conn.setSavepoint();
+
+            int[] counts = executeBatches(conn, updates, errors, existing);
+            if (counts == null) {
+                conn.rollback(locked);
+                counts = executeSingly(conn, updates, errors);
+            }
+            MonthlyRollup.Delta delta = new MonthlyRollup.Delta();
+            Set<Integer> changed = new HashSet<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (errors[i] == null && counts[i] == 0) {
+                    errors[i] = "Buchung nicht gefunden.";
+                }
+                FieldUpdate update = updates.get(i);
+                if (errors[i] == null) {
+                    changed.add(update.id());
+                }
+                Booked before = current.get(update.id());
+                if (errors[i] == null && before != null && update.field() != BuchungFeld.INFO) {
+                    Booked after = before.with(update);
+                    delta.add(before.date(), before.categoryId(), -before.cents(), -1);
+                    delta.add(after.date(), after.categoryId(), after.cents(), 1);
+                    current.put(update.id(), after);
+                }
+            }
+            delta.apply(conn);
+            ChangeLog.bookings(conn, changed);
+            return errors;
+        });
+    }
+
+    // Reads and locks the given bookings. The IN list is padded to a few fixed sizes so that the
+    // statement cache only sees a handful of different SQL texts.
+    private Map<Integer, Booked> lockRows(Connection conn, Set<Integer> ids) throws SQLException {
+        Map<Integer, Booked> rows = new HashMap<>();
+        List<Integer> remaining = new ArrayList<>(ids);
+        while (!remaining.isEmpty()) {
+            int size = paddedSize(remaining.size());
+            List<Integer> part = remaining.subList(0, Math.min(size, remaining.size()));
+            String sql = "SELECT ID, Datum, Betrag, KategorieID FROM Buchungen WHERE ID IN ("
+                    + "?, ".repeat(size - 1) + "?) FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < size; i++) {
+                    pstmt.setInt(i + 1, part.get(Math.min(i, part.size() - 1)));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.put(rs.getInt("ID"), new Booked(rs.getDate("Datum").toLocalDate(),
+                                BookingStore.toCents(rs.getDouble("Betrag")), rs.getInt("KategorieID")));
+                    }
+                }
+            }
+            part.clear();
+        }
+        return rows;
+    }
+
+    private static int paddedSize(int remaining) {
+        return remaining > 64 ? 512 : remaining > 8 ? 64 : remaining > 1 ? 8 : 1;
+    }
+
+    // Update counts per update, or null if a batch failed
+    // existing: the locked bookings, for drivers that do not report update counts
+    private int[] executeBatches(Connection conn, List<FieldUpdate> updates, String[] errors, Set<Integer> existing) throws SQLException {
+        int[] counts = new int[updates.size()];
+        for (BuchungFeld field : BuchungFeld.values()) {
+            List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < updates.size(); i++) {
+                if (errors[i] == null && updates.get(i).field() == field) {
+                    indices.add(i);
+                }
+            }
+            if (indices.isEmpty()) {
+                continue;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(updateSql(field))) {
+                for (int i : indices) {
+                    bindUpdate(pstmt, updates.get(i));
+                    pstmt.addBatch();
+                }
+                int[] batchCounts = pstmt.executeBatch();
+                for (int j = 0; j < indices.size(); j++) {
+                    int i = indices.get(j);
+                    // SUCCESS_NO_INFO: the driver does not report counts for rewritten batches; the
+                    // row was updated if it exists, and it cannot vanish while it is locked
+                    boolean known = j < batchCounts.length && batchCounts[j] != Statement.SUCCESS_NO_INFO;
+                    counts[i] = known ? batchCounts[j] : existing.contains(updates.get(i).id()) ? 1 : 0;
+                }
+            } catch (BatchUpdateException e) {
+                return null;
+            }
+        }
+        return counts;
+    }
+
+    private int[] executeSingly(Connection conn, List<FieldUpdate> updates, String[] errors) throws SQLException {
+        int[] counts = new int[updates.size()];
+        for (int i = 0; i < updates.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            FieldUpdate update = updates.get(i);
+            Savepoint savepoint = conn.setSavepoint();
+            try (PreparedStatement pstmt = conn.prepareStatement(updateSql(update.field()))) {
+                bindUpdate(pstmt, update);
+                counts[i] = pstmt.executeUpdate();
+                conn.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                errors[i] = e.getMessage();
+            }
+        }
+        return counts;
+    }
+
+    private static String updateSql(BuchungFeld field) throws SQLException {
+        return switch (field) {
+            case DATUM -> "UPDATE Buchungen SET Datum = ? WHERE ID = ?";
+            case INFO -> "UPDATE Buchungen SET Info = ? WHERE ID = ?";
+            case BETRAG -> "UPDATE Buchungen SET Betrag = ? WHERE ID = ?";
+            default -> throw new SQLException("Unknown column: " + field);
+        };
+    }
+
+    private static void bindUpdate(PreparedStatement pstmt, FieldUpdate update) throws SQLException {
+        switch (update.field()) {
+            case DATUM -> pstmt.setDate(1, Date.valueOf(LocalDate.parse(update.value())));
+            case BETRAG -> pstmt.setDouble(1, Double.parseDouble(update.value()));
+            default -> pstmt.setString(1, update.value());
+        }
+        pstmt.setInt(2, update.id());
+    }
+
+    @Override
+    public void delete(int id) throws SQLException {
+        transaction(conn -> {
+            Booked booked = lockRows(conn, Set.of(id)).get(id);
+            try (PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement("DELETE FROM Buchungen WHERE ID = ?"))) {
+                pstmt.setInt(1, id);
+                pstmt.executeUpdate();
+            }
+            if (booked != null) {
+                new MonthlyRollup.Delta().add(booked.date(), booked.categoryId(), -booked.cents(), -1).apply(conn);
+                ChangeLog.booking(conn, id);
+            }
+            return null;
+        });
+        InfoIndex.remove(id);
+    }
+
+    // One set-based DELETE per padded IN list
+    @Override
+    public int deleteAll(int[] ids) throws SQLException {
+        List<Integer> deleted = transaction(conn -> {
+            Map<Integer, Booked> current = lockRows(conn, idSet(ids));
+            List<Integer> existing = new ArrayList<>(current.keySet());
+            executeForIds(conn, "DELETE FROM Buchungen WHERE ID", existing);
+            MonthlyRollup.Delta delta = new MonthlyRollup.Delta();
+            current.values().forEach(booked -> delta.add(booked.date(), booked.categoryId(), -booked.cents(), -1));
+            delta.apply(conn);
+            ChangeLog.bookings(conn, existing);
+            return existing;
+        });
+        for (int id : deleted) {
+            InfoIndex.remove(id);
+        }
+        return deleted.size();
+    }
+
+    // One set-based UPDATE per padded IN list
+    @Override
+    public void moveToCategory(int[] ids, int categoryId) throws SQLException {
+        transaction(conn -> {
+            Map<Integer, Booked> current = lockRows(conn, idSet(ids));
+            List<Integer> existing = new ArrayList<>(current.keySet());
+            executeForIds(conn, "UPDATE Buchungen SET KategorieID = ? WHERE ID", existing, categoryId);
+            MonthlyRollup.Delta delta = new MonthlyRollup.Delta();
+            current.values().forEach(booked -> delta.add(booked.date(), booked.categoryId(), -booked.cents(), -1)
+                    .add(booked.date(), categoryId, booked.cents(), 1));
+            delta.apply(conn);
+            ChangeLog.bookings(conn, existing);
+            return null;
+        });
+    }
+
+    // The new dates are computed from the locked rows and written as one JDBC batch
+    @Override
+    public void shiftDates(int[] ids, int days) throws SQLException {
+        transaction(conn -> {
+            Map<Integer, Booked> current = lockRows(conn, idSet(ids));
+            MonthlyRollup.Delta delta = new MonthlyRollup.Delta();
+            try (PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement("UPDATE Buchungen SET Datum = ? WHERE ID = ?"))) {
+                for (Map.Entry<Integer, Booked> entry : current.entrySet()) {
+                    Booked booked = entry.getValue();
+                    LocalDate shifted = booked.date().plusDays(days);
+                    pstmt.setDate(1, Date.valueOf(shifted));
+                    pstmt.setInt(2, entry.getKey());
+                    pstmt.addBatch();
+                    delta.add(booked.date(), booked.categoryId(), -booked.cents(), -1)
+                            .add(shifted, booked.categoryId(), booked.cents(), 1);
+                }
+                pstmt.executeBatch();
+            }
+            delta.apply(conn);
+            ChangeLog.bookings(conn, current.keySet());
+            return null;
+        });
+    }
+
+    private static Set<Integer> idSet(int[] ids) {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Override
+    public int countByCategory(int categoryId) throws SQLException {
+        return query("SELECT COUNT(*) FROM Buchungen WHERE KategorieID = ?", pstmt -> pstmt.setInt(1, categoryId),
+                rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+
+    // Only the rows of one chunk are locked, and only until its transaction commits
+    @Override
+    public int[] deleteByCategory(int categoryId, int limit) throws SQLException {
+        List<Integer> deleted = transaction(conn -> {
+            List<Integer> ids = new ArrayList<>();
+            MonthlyRollup.Delta delta = new MonthlyRollup.Delta();
+            String sql = "SELECT ID, Datum, Betrag FROM Buchungen WHERE KategorieID = ? ORDER BY ID LIMIT ? FOR UPDATE";
+            try (PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement(sql))) {
+                pstmt.setInt(1, categoryId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt("ID"));
+                        delta.add(rs.getDate("Datum").toLocalDate(), categoryId, -BookingStore.toCents(rs.getDouble("Betrag")), -1);
+                    }
+                }
+            }
+            executeForIds(conn, "DELETE FROM Buchungen WHERE ID", ids);
+            delta.apply(conn);
+            ChangeLog.bookings(conn, ids);
+            return ids;
+        });
+        for (int id : deleted) {
+            InfoIndex.remove(id);
+        }
+        return deleted.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Runs the statement, which ends in "WHERE ID", for the given bookings with IN lists padded like
+    // those of lockRows; the values are bound before the IDs
+    private static void executeForIds(Connection conn, String sql, List<Integer> ids, int... values) throws SQLException {
+        for (int start = 0; start < ids.size(); ) {
+            int size = paddedSize(ids.size() - start);
+            int to = Math.min(start + size, ids.size());
+            try (PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement(sql + " IN (" + "?, ".repeat(size - 1) + "?)"))) {
+                for (int i = 0; i < values.length; i++) {
+                    pstmt.setInt(i + 1, values[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    pstmt.setInt(values.length + i + 1, ids.get(Math.min(start + i, to - 1)));
+                }
+                pstmt.executeUpdate();
+            }
+            start = to;
+        }
+    }
+
+    // Runs the work in one transaction on a pooled connection
+    private <T> T transaction(Work<T> work) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// src/JdbcCategoryRepository.java
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// CategoryRepository on the Kategorie table of the JDBC database
+public class JdbcCategoryRepository implements CategoryRepository {
+    @Override
+    public List<Category> loadAll() throws SQLException {
+        List<Category> categories = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT ID, Bezeichnung, Kurzbeschreibung, Einzahlung_Auszahlung FROM Kategorie");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                categories.add(new Category(rs.getInt("ID"), rs.getString("Bezeichnung"), rs.getString("Kurzbeschreibung"),
+                        TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung"))));
+            }
+        }
+        return categories;
+    }
+
+    @Override
+    public Category insert(String name, String description, TransactionType type) throws SQLException {
+        String sql = "INSERT INTO Kategorie (Bezeichnung, Kurzbeschreibung, Einzahlung_Auszahlung) VALUES (?, ?, ?)";
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, name);
+                pstmt.setString(2, description);
+                pstmt.setInt(3, type.getValue());
+                pstmt.executeUpdate();
+                Category category;
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Keine ID für die neue Kategorie erhalten.");
+                    }
+                    category = new Category(keys.getInt(1), name, description, type);
+                }
+                ChangeLog.category(conn, category.id());
+                conn.commit();
+                return category;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void update(Category category, boolean typeChanged) throws SQLException {
+        String sql = "UPDATE Kategorie SET Bezeichnung = ?, Kurzbeschreibung = ?, Einzahlung_Auszahlung = ? WHERE ID = ?";
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, category.name());
+                pstmt.setString(2, category.description());
+                pstmt.setInt(3, category.type().getValue());
+                pstmt.setInt(4, category.id());
+                pstmt.executeUpdate();
+                // The monthly sums of the category move to the other side together with the type
+                if (typeChanged) {
+                    MonthlyRollup.changeType(conn, category.id(), category.type());
+                }
+                ChangeLog.category(conn, category.id());
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            // The locking read also keeps other clients from adding bookings of the category until the commit
+            try (PreparedStatement check = conn.prepareStatement("SELECT ID FROM Buchungen WHERE KategorieID = ? LIMIT 1 FOR UPDATE");
+                 PreparedStatement pstmt = conn.prepareStatement("DELETE FROM Kategorie WHERE ID = ?")) {
+                check.setInt(1, id);
+                try (ResultSet rs = check.executeQuery()) {
+                    if (rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                pstmt.setInt(1, id);
+                pstmt.executeUpdate();
+                MonthlyRollup.removeCategory(conn, id);
+                ChangeLog.category(conn, id);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
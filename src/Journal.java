@@ -0,0 +1,283 @@
+// src/Journal.java
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Append-only journal file of fixed-size records of 512 bytes. A 64 byte header holds the number of committed
+// records and a CRC32 of itself; every record ends with a CRC32 of its content. Records are written
+// behind the committed ones and only become visible when commit() rewrites the header, so a crash
+// in the middle of a write loses the uncommitted records and nothing else.
+// replay() reads the file through MappedByteBuffers of up to WINDOW_RECORDS records into one reused
+// Record, without allocating per record.
+public class Journal implements Closeable {
+    public static final byte BOOKING = 1;
+    public static final byte BOOKING_DELETED = 2;
+    public static final byte CATEGORY = 3;
+    public static final byte CATEGORY_DELETED = 4;
+    // Next free booking ID (id) and category ID (categoryId), written first by a compaction
+    public static final byte COUNTERS = 5;
+
+    private static final int MAGIC = 0x48424a31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 512;
+    // kind(1) type(1) text1 length(2) id(4) epochDay(4) categoryId(4) cents(8) text2 length(2), texts, CRC32(4)
+    private static final int TEXT_OFFSET = 26;
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+    static final int MAX_TEXT_BYTES = CRC_OFFSET - TEXT_OFFSET;
+    // 64 MB per mapping; a single mapping is limited to 2 GB
+    private static final int WINDOW_RECORDS = 1 << 17;
+    // Copy of the file kept before replay() discards records
+    static final String CORRUPT_SUFFIX = ".corrupt";
+
+    // One record of the journal; replay() passes the same instance for every record
+    public static final class Record {
+        public byte kind;
+        public TransactionType type;
+        public int id;
+        public int epochDay;
+        public int categoryId;
+        public long cents;
+        public final byte[] text1 = new byte[MAX_TEXT_BYTES];
+        public int text1Length;
+        public final byte[] text2 = new byte[MAX_TEXT_BYTES];
+        public int text2Length;
+    }
+
+    // Returns false for a record it cannot read
+    public interface Visitor {
+        boolean accept(Record record);
+    }
+
+    private final Path file;
+    private FileChannel channel;
+    private int committed;
+    private int written;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    public Journal(Path file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            committed = 0;
+            writeHeader();
+            channel.force(true);
+        } else {
+            committed = readHeader();
+        }
+        written = committed;
+    }
+
+    // Number of committed records
+    public int size() {
+        return committed;
+    }
+
+    // Sequential scan of all committed records. Stops at the first record whose checksum does not
+    // match, and drops it and everything after it from the journal. Returns the number of records
+    // dropped or not read by the visitor; if there are any, the file as it was is kept at CORRUPT_SUFFIX.
+    public int replay(Visitor visitor) throws IOException {
+        if (committed == 0) {
+            return 0;
+        }
+        int unread = 0;
+        Record record = new Record();
+        byte[] content = new byte[CRC_OFFSET];
+        MappedByteBuffer mapped = null;
+        for (int i = 0; i < committed; i++) {
+            int position = (i % WINDOW_RECORDS) * RECORD_SIZE;
+            if (position == 0) {
+                long count = Math.min(WINDOW_RECORDS, committed - i);
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) i * RECORD_SIZE, count * RECORD_SIZE);
+            }
+            mapped.get(position, content, 0, CRC_OFFSET);
+            crc.reset();
+            crc.update(content, 0, CRC_OFFSET);
+            if ((int) crc.getValue() != mapped.getInt(position + CRC_OFFSET)) {
+                keepCorruptCopy();
+                int dropped = committed - i;
+                committed = i;
+                written = i;
+                writeHeader();
+                channel.force(true);
+                return unread + dropped;
+            }
+            record.kind = mapped.get(position);
+            record.type = TransactionType.fromValue(mapped.get(position + 1));
+            record.text1Length = mapped.getShort(position + 2);
+            record.id = mapped.getInt(position + 4);
+            record.epochDay = mapped.getInt(position + 8);
+            record.categoryId = mapped.getInt(position + 12);
+            record.cents = mapped.getLong(position + 16);
+            record.text2Length = mapped.getShort(position + 24);
+            mapped.get(position + TEXT_OFFSET, record.text1, 0, record.text1Length);
+            mapped.get(position + TEXT_OFFSET + record.text1Length, record.text2, 0, record.text2Length);
+            if (!visitor.accept(record)) {
+                unread++;
+            }
+        }
+        // A later compaction would drop the unread records as well
+        if (unread > 0) {
+            keepCorruptCopy();
+        }
+        return unread;
+    }
+
+    private void keepCorruptCopy() throws IOException {
+        channel.force(true);
+        Files.copy(file, file.resolveSibling(file.getFileName() + CORRUPT_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public void appendBooking(int id, int epochDay, long cents, int categoryId, String info) throws IOException {
+        append(BOOKING, TransactionType.AUSZAHLUNG, id, epochDay, categoryId, cents, info, null);
+    }
+
+    public void appendBookingDeleted(int id) throws IOException {
+        append(BOOKING_DELETED, TransactionType.AUSZAHLUNG, id, 0, 0, 0, null, null);
+    }
+
+    public void appendCategory(Category category) throws IOException {
+        append(CATEGORY, category.type(), category.id(), 0, 0, 0, category.name(), category.description());
+    }
+
+    public void appendCategoryDeleted(int id) throws IOException {
+        append(CATEGORY_DELETED, TransactionType.AUSZAHLUNG, id, 0, 0, 0, null, null);
+    }
+
+    // Keeps the IDs of deleted rows from being handed out again once a compaction has dropped their records
+    public void appendCounters(int nextBookingId, int nextCategoryId) throws IOException {
+        append(COUNTERS, TransactionType.AUSZAHLUNG, nextBookingId, 0, nextCategoryId, 0, null, null);
+    }
+
+    // The text as it is read back from a booking record: cut to the record's text area
+    public static String fit(String text) {
+        return new String(truncate(text, MAX_TEXT_BYTES), StandardCharsets.UTF_8);
+    }
+
+    // Makes all records appended since the last commit durable and visible
+    public void commit() throws IOException {
+        if (written == committed) {
+            return;
+        }
+        channel.force(false);
+        committed = written;
+        writeHeader();
+        channel.force(false);
+    }
+
+    // Forgets the records appended since the last commit
+    public void rollback() {
+        written = committed;
+    }
+
+    // Replaces the journal by a new one that only contains what writer appends to it
+    public void compact(Writer writer) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try (Journal compacted = new Journal(temp)) {
+            writer.write(compacted);
+            compacted.commit();
+        }
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            open();
+        }
+    }
+
+    public interface Writer {
+        void write(Journal journal) throws IOException;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(byte kind, TransactionType type, int id, int epochDay, int categoryId, long cents,
+                        String text1, String text2) throws IOException {
+        byte[] first = truncate(text1, MAX_TEXT_BYTES);
+        byte[] second = truncate(text2, MAX_TEXT_BYTES - first.length);
+        recordBuffer.clear();
+        recordBuffer.put(kind).put((byte) type.getValue()).putShort((short) first.length)
+                .putInt(id).putInt(epochDay).putInt(categoryId).putLong(cents).putShort((short) second.length)
+                .put(first).put(second);
+        while (recordBuffer.position() < CRC_OFFSET) {
+            recordBuffer.put((byte) 0);
+        }
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, CRC_OFFSET);
+        recordBuffer.putInt((int) crc.getValue());
+        recordBuffer.flip();
+        long position = HEADER_SIZE + (long) written * RECORD_SIZE;
+        while (recordBuffer.hasRemaining()) {
+            position += channel.write(recordBuffer, position);
+        }
+        written++;
+    }
+
+    // UTF-8 bytes of the text, cut at a character boundary so that they fit into max bytes
+    private static byte[] truncate(String text, int max) {
+        if (text == null) {
+            return new byte[0];
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= max) {
+            return bytes;
+        }
+        int length = max;
+        // Continuation bytes start with 10xxxxxx
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] cut = new byte[length];
+        System.arraycopy(bytes, 0, cut, 0, length);
+        return cut;
+    }
+
+    private int readHeader() throws IOException {
+        headerBuffer.clear();
+        channel.read(headerBuffer, 0);
+        crc.reset();
+        crc.update(headerBuffer.array(), 0, HEADER_SIZE - 4);
+        if (headerBuffer.getInt(0) != MAGIC || headerBuffer.getInt(4) != VERSION
+                || headerBuffer.getInt(8) != RECORD_SIZE || headerBuffer.getInt(HEADER_SIZE - 4) != (int) crc.getValue()) {
+            throw new IOException("Journal " + file + " hat einen ungültigen Kopf.");
+        }
+        int count = headerBuffer.getInt(12);
+        // Records that did not reach the disk before a crash
+        long available = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        return (int) Math.min(count, available);
+    }
+
+    private void writeHeader() throws IOException {
+        headerBuffer.clear();
+        headerBuffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(committed);
+        while (headerBuffer.position() < HEADER_SIZE - 4) {
+            headerBuffer.put((byte) 0);
+        }
+        crc.reset();
+        crc.update(headerBuffer.array(), 0, HEADER_SIZE - 4);
+        headerBuffer.putInt((int) crc.getValue());
+        headerBuffer.flip();
+        long position = 0;
+        while (headerBuffer.hasRemaining()) {
+            position += channel.write(headerBuffer, position);
+        }
+    }
+}
@@ -0,0 +1,565 @@
+// src/JournalRepository.java
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Storage engine for working without a database server (db.engine=journal). Bookings and categories
+// are held in memory, the bookings in a BookingStore, and every query is answered from there. Every
+// change is appended to a Journal file (journal.file): an insert is one booking record, an edit
+// overwrites the booking with a new record and a delete writes a tombstone. At startup the journal
+// is replayed into the store; once it holds more than twice as many records as live rows it is compacted.
+// The categories are served through categories(). All calls are synchronized; returned stores are copies.
+public class JournalRepository implements BookingRepository {
+    private static final Path FILE = Path.of(AppConfig.getString("journal.file", "haushaltsbuch.journal"));
+    private static final int COMPACT_MIN_RECORDS = 10_000;
+
+    private static JournalRepository instance;
+
+    private Journal journal;
+    private BookingStore store;
+    // Store row of every booking ID, -1 if there is none
+    private int[] rowById;
+    private int liveBookings;
+    private final Map<Integer, Category> categories = new HashMap<>();
+    private int nextBookingId;
+    private int nextCategoryId;
+    // Records the last replay dropped or could not read
+    private int discardedRecords;
+    private final Categories categoryView = new Categories();
+
+    private interface Write {
+        void run(Journal journal) throws IOException;
+    }
+
+    // Values of a booking after some of its fields were changed
+    private record Booking(int epochDay, long cents, int categoryId, String info) {
+        Booking with(FieldUpdate update) {
+            return switch (update.field()) {
+                case DATUM -> new Booking((int) LocalDate.parse(update.value()).toEpochDay(), cents, categoryId, info);
+                case BETRAG -> new Booking(epochDay, BookingStore.toCents(Double.parseDouble(update.value())), categoryId, info);
+                case INFO -> new Booking(epochDay, cents, categoryId, Journal.fit(update.value()));
+                default -> this;
+            };
+        }
+    }
+
+    // Search and date filter applied to store rows
+    private final class Matcher {
+        private final int from;
+        private final int to;
+        private final String text;
+        // Result of the text search per info text: 0 = not checked yet, 1 = match, 2 = no match
+        private final byte[] textMatches;
+
+        Matcher(BookingFilter filter) {
+            from = filter.startDate() != null ? (int) filter.startDate().toEpochDay() : Integer.MIN_VALUE;
+            to = filter.endDate() != null ? (int) filter.endDate().toEpochDay() : Integer.MAX_VALUE;
+            text = filter.text().isEmpty() ? null : BookingFilter.normalize(filter.text());
+            textMatches = text != null ? new byte[store.infos().size()] : null;
+        }
+
+        boolean test(int row) {
+            if (store.isDeleted(row) || store.epochDay(row) < from || store.epochDay(row) > to) {
+                return false;
+            }
+            if (text == null) {
+                return true;
+            }
+            int ref = store.infoRef(row);
+            if (textMatches[ref] == 0) {
+                textMatches[ref] = BookingFilter.normalize(store.infos().get(ref)).contains(text) ? (byte) 1 : (byte) 2;
+            }
+            return textMatches[ref] == 1;
+        }
+    }
+
+    public static boolean isSelected() {
+        return AppConfig.getString("db.engine", "mariadb").equalsIgnoreCase("journal");
+    }
+
+    public static synchronized JournalRepository instance() {
+        if (instance == null) {
+            instance = new JournalRepository();
+        }
+        return instance;
+    }
+
+    // Opens and replays the journal; called at startup, otherwise on first use
+    public synchronized void open() throws SQLException {
+        if (journal != null) {
+            return;
+        }
+        try {
+            Journal opened = new Journal(FILE);
+            try {
+                replayAll(opened);
+            } catch (IOException | RuntimeException e) {
+                opened.close();
+                throw e;
+            }
+            journal = opened;
+        } catch (IOException e) {
+            throw new SQLException("Journal " + FILE + " konnte nicht gelesen werden.", e);
+        }
+    }
+
+    // Message about the records the replay at open() dropped, or null if there were none
+    public synchronized String discardedMessage() {
+        if (discardedRecords == 0) {
+            return null;
+        }
+        return String.format("Beim Öffnen des Journals wurden %,d beschädigte oder unbekannte Datensätze verworfen.%n"
+                + "Die Datei vor dem Verwerfen liegt unter %s.", discardedRecords, FILE + Journal.CORRUPT_SUFFIX);
+    }
+
+    private void replayAll(Journal opened) throws IOException {
+        store = new BookingStore(Math.max(1024, opened.size()));
+        rowById = new int[Math.max(1024, opened.size())];
+        Arrays.fill(rowById, -1);
+        liveBookings = 0;
+        categories.clear();
+        nextBookingId = 1;
+        nextCategoryId = 1;
+        discardedRecords = opened.replay(this::replay);
+        // Categories may have changed their type after their bookings were written
+        for (int row = 0; row < store.size(); row++) {
+            store.setType(row, typeOf(store.categoryId(row)));
+        }
+    }
+
+    // Called for every record in file order; booking records allocate nothing
+    private boolean replay(Journal.Record record) {
+        switch (record.kind) {
+            case Journal.BOOKING -> {
+                putBooking(record.id, record.epochDay, record.cents, record.categoryId,
+                        store.infos().add(record.text1, 0, record.text1Length));
+                nextBookingId = Math.max(nextBookingId, record.id + 1);
+            }
+            case Journal.BOOKING_DELETED -> removeBooking(record.id);
+            case Journal.CATEGORY -> {
+                categories.put(record.id, new Category(record.id,
+                        new String(record.text1, 0, record.text1Length, StandardCharsets.UTF_8),
+                        new String(record.text2, 0, record.text2Length, StandardCharsets.UTF_8), record.type));
+                nextCategoryId = Math.max(nextCategoryId, record.id + 1);
+            }
+            case Journal.CATEGORY_DELETED -> categories.remove(record.id);
+            case Journal.COUNTERS -> {
+                nextBookingId = Math.max(nextBookingId, record.id);
+                nextCategoryId = Math.max(nextCategoryId, record.categoryId);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Appends the booking to the store; an older version of it is marked deleted
+    private void putBooking(int id, int epochDay, long cents, int categoryId, int infoRef) {
+        removeBooking(id);
+        if (id >= rowById.length) {
+            int length = rowById.length;
+            rowById = Arrays.copyOf(rowById, Math.max(id + 1, length + (length >> 1)));
+            Arrays.fill(rowById, length, rowById.length, -1);
+        }
+        rowById[id] = store.append(id, cents, epochDay, categoryId, typeOf(categoryId), infoRef);
+        liveBookings++;
+    }
+
+    private void removeBooking(int id) {
+        int row = rowOf(id);
+        if (row >= 0) {
+            store.markDeleted(row);
+            rowById[id] = -1;
+            liveBookings--;
+        }
+    }
+
+    private int rowOf(int id) {
+        return id >= 0 && id < rowById.length ? rowById[id] : -1;
+    }
+
+    private TransactionType typeOf(int categoryId) {
+        Category category = categories.get(categoryId);
+        return category != null ? category.type() : TransactionType.AUSZAHLUNG;
+    }
+
+    // Appends the records of one change and commits them; nothing is kept if that fails
+    private void write(Write write) throws SQLException {
+        open();
+        try {
+            write.run(journal);
+            journal.commit();
+        } catch (IOException e) {
+            journal.rollback();
+            throw new SQLException("Journal " + FILE + " konnte nicht geschrieben werden.", e);
+        }
+    }
+
+    // Rewrites the journal with only the live rows once most of its records are outdated
+    private void compactIfNeeded() {
+        int live = liveBookings + categories.size();
+        if (journal.size() <= COMPACT_MIN_RECORDS || journal.size() <= 2 * live) {
+            return;
+        }
+        int[] rows = liveRows();
+        try {
+            journal.compact(compacted -> {
+                compacted.appendCounters(nextBookingId, nextCategoryId);
+                for (Category category : sortedCategories()) {
+                    compacted.appendCategory(category);
+                }
+                for (int row : rows) {
+                    compacted.appendBooking(store.id(row), store.epochDay(row), store.cents(row), store.categoryId(row), store.info(row));
+                }
+            });
+        } catch (IOException e) {
+            // The old journal stays valid, compaction is tried again after the next change
+            e.printStackTrace();
+            return;
+        }
+        store = store.copy(rows);
+        Arrays.fill(rowById, -1);
+        for (int row = 0; row < store.size(); row++) {
+            rowById[store.id(row)] = row;
+        }
+    }
+
+    private int[] liveRows() {
+        int[] rows = new int[liveBookings];
+        int count = 0;
+        for (int row = 0; row < store.size(); row++) {
+            if (!store.isDeleted(row)) {
+                rows[count++] = row;
+            }
+        }
+        return rows;
+    }
+
+    private List<Category> sortedCategories() {
+        List<Category> sorted = new ArrayList<>(categories.values());
+        sorted.sort((a, b) -> Integer.compare(a.id(), b.id()));
+        return sorted;
+    }
+
+    // Store rows matching the filter in store order
+    private int[] matching(BookingFilter filter) {
+        Matcher matcher = new Matcher(filter);
+        int[] rows = new int[liveBookings];
+        int count = 0;
+        for (int row = 0; row < store.size(); row++) {
+            if (matcher.test(row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    // Store rows matching the filter in sort order
+    private int[] sorted(BookingFilter filter, BookingSort sort) {
+        return BookingSorter.sort(store, matching(filter), sort, categories::get);
+    }
+
+    @Override
+    public synchronized Summary summarize(BookingFilter filter) throws SQLException {
+        open();
+        long income = 0;
+        long expense = 0;
+        int[] rows = matching(filter);
+        for (int row : rows) {
+            if (store.isIncome(row)) {
+                income += store.cents(row);
+            } else {
+                expense += store.cents(row);
+            }
+        }
+        return new Summary(rows.length, income, expense);
+    }
+
+    @Override
+    public synchronized BookingStore loadAll(BookingFilter filter, BookingSort sort, int expectedRows) throws SQLException {
+        open();
+        return store.copy(sorted(filter, sort));
+    }
+
+    @Override
+    public synchronized BookingStore loadPage(BookingFilter filter, BookingSort sort, PageKey start, int offset, int limit) throws SQLException {
+        open();
+        int[] rows = sorted(filter, sort);
+        int from = Math.min(offset, rows.length);
+        if (start != null && sort.supportsKeyset()) {
+            // First row after the (Datum, ID) key in sort direction
+            int day = (int) start.datum().toEpochDay();
+            from = 0;
+            while (from < rows.length) {
+                int byKey = store.epochDay(rows[from]) != day
+                        ? Integer.compare(store.epochDay(rows[from]), day) : Integer.compare(store.id(rows[from]), start.id());
+                if (sort.ascending() ? byKey > 0 : byKey < 0) {
+                    break;
+                }
+                from++;
+            }
+        }
+        return store.copy(Arrays.copyOfRange(rows, from, Math.min(rows.length, from + limit)));
+    }
+
+    @Override
+    public synchronized BookingStore loadByIds(int[] ids, BookingFilter filter) throws SQLException {
+        open();
+        Matcher matcher = new Matcher(filter);
+        int[] rows = new int[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            int row = rowOf(id);
+            if (row >= 0 && matcher.test(row)) {
+                rows[count++] = row;
+            }
+        }
+        return store.copy(Arrays.copyOf(rows, count));
+    }
+
+    // Streams from a copy, so that a slow consumer does not block other calls
+    @Override
+    public void stream(BookingFilter filter, BookingSort sort, int fetchSize, BookingConsumer consumer) throws SQLException {
+        BookingStore rows = loadAll(filter, sort, 0);
+        for (int row = 0; row < rows.size(); row++) {
+            consumer.accept(rows.id(row), rows.info(row), rows.cents(row), rows.type(row), rows.date(row), rows.categoryId(row));
+        }
+    }
+
+    // A single appended record
+    @Override
+    public synchronized int insert(LocalDate date, String info, double betrag, int categoryId) throws SQLException {
+        int id = nextBookingId;
+        int epochDay = (int) date.toEpochDay();
+        long cents = BookingStore.toCents(betrag);
+        String stored = Journal.fit(info);
+        write(journal -> journal.appendBooking(id, epochDay, cents, categoryId, stored));
+        nextBookingId++;
+        putBooking(id, epochDay, cents, categoryId, store.infos().add(stored));
+        compactIfNeeded();
+        return id;
+    }
+
+    // One overwrite record per changed booking, all committed together
+    @Override
+    public synchronized String[] updateAll(List<FieldUpdate> updates) throws SQLException {
+        open();
+        String[] errors = new String[updates.size()];
+        Map<Integer, Booking> changed = new LinkedHashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            FieldUpdate update = updates.get(i);
+            errors[i] = update.error();
+            if (errors[i] != null) {
+                continue;
+            }
+            int row = rowOf(update.id());
+            if (row < 0) {
+                errors[i] = "Buchung nicht gefunden.";
+                continue;
+            }
+            Booking current = changed.getOrDefault(update.id(),
+                    new Booking(store.epochDay(row), store.cents(row), store.categoryId(row), store.info(row)));
+            changed.put(update.id(), current.with(update));
+        }
+        putAll(changed);
+        return errors;
+    }
+
+    // Writes the changed bookings as one journal commit
+    private void putAll(Map<Integer, Booking> changed) throws SQLException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        write(journal -> {
+            for (Map.Entry<Integer, Booking> entry : changed.entrySet()) {
+                Booking booking = entry.getValue();
+                journal.appendBooking(entry.getKey(), booking.epochDay(), booking.cents(), booking.categoryId(), booking.info());
+            }
+        });
+        for (Map.Entry<Integer, Booking> entry : changed.entrySet()) {
+            Booking booking = entry.getValue();
+            putBooking(entry.getKey(), booking.epochDay(), booking.cents(), booking.categoryId(), store.infos().add(booking.info()));
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized void delete(int id) throws SQLException {
+        write(journal -> journal.appendBookingDeleted(id));
+        removeBooking(id);
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized int deleteAll(int[] ids) throws SQLException {
+        open();
+        List<Integer> existing = new ArrayList<>();
+        for (int id : ids) {
+            if (rowOf(id) >= 0) {
+                existing.add(id);
+            }
+        }
+        write(journal -> {
+            for (int id : existing) {
+                journal.appendBookingDeleted(id);
+            }
+        });
+        for (int id : existing) {
+            removeBooking(id);
+        }
+        compactIfNeeded();
+        return existing.size();
+    }
+
+    @Override
+    public synchronized void moveToCategory(int[] ids, int categoryId) throws SQLException {
+        open();
+        Map<Integer, Booking> changed = new LinkedHashMap<>();
+        for (int id : ids) {
+            int row = rowOf(id);
+            if (row >= 0) {
+                changed.put(id, new Booking(store.epochDay(row), store.cents(row), categoryId, store.info(row)));
+            }
+        }
+        putAll(changed);
+    }
+
+    @Override
+    public synchronized void shiftDates(int[] ids, int days) throws SQLException {
+        open();
+        Map<Integer, Booking> changed = new LinkedHashMap<>();
+        for (int id : ids) {
+            int row = rowOf(id);
+            if (row >= 0) {
+                changed.put(id, new Booking(store.epochDay(row) + days, store.cents(row), store.categoryId(row), store.info(row)));
+            }
+        }
+        putAll(changed);
+    }
+
+    @Override
+    public synchronized int countByCategory(int categoryId) throws SQLException {
+        open();
+        int count = 0;
+        for (int row = 0; row < store.size(); row++) {
+            if (!store.isDeleted(row) && store.categoryId(row) == categoryId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized int[] deleteByCategory(int categoryId, int limit) throws SQLException {
+        open();
+        List<Integer> ids = new ArrayList<>();
+        for (int row = 0; row < store.size() && ids.size() < limit; row++) {
+            if (!store.isDeleted(row) && store.categoryId(row) == categoryId) {
+                ids.add(store.id(row));
+            }
+        }
+        write(journal -> {
+            for (int id : ids) {
+                journal.appendBookingDeleted(id);
+            }
+        });
+        for (int id : ids) {
+            removeBooking(id);
+        }
+        compactIfNeeded();
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Sums per month and category of all bookings, newest month first, as MonthlyRollup.load() returns them
+    public synchronized List<MonthlyRollup.Row> monthlyRows() throws SQLException {
+        open();
+        // Key: months since year 0 in the upper half, category ID in the lower half
+        Map<Long, long[]> sums = new HashMap<>();
+        for (int row = 0; row < store.size(); row++) {
+            if (store.isDeleted(row)) {
+                continue;
+            }
+            LocalDate date = store.date(row);
+            long key = ((long) (date.getYear() * 12 + date.getMonthValue() - 1) << 32) | (store.categoryId(row) & 0xFFFFFFFFL);
+            long[] sum = sums.computeIfAbsent(key, k -> new long[2]);
+            sum[0] += store.cents(row);
+            sum[1]++;
+        }
+        List<MonthlyRollup.Row> rows = new ArrayList<>(sums.size());
+        for (Map.Entry<Long, long[]> entry : sums.entrySet()) {
+            int months = (int) (entry.getKey() >>> 32);
+            int categoryId = (int) (long) entry.getKey();
+            rows.add(new MonthlyRollup.Row(YearMonth.of(months / 12, months % 12 + 1), categoryId, typeOf(categoryId),
+                    entry.getValue()[0], (int) entry.getValue()[1]));
+        }
+        rows.sort((a, b) -> a.month().equals(b.month())
+                ? Integer.compare(a.categoryId(), b.categoryId()) : b.month().compareTo(a.month()));
+        return rows;
+    }
+
+    // The categories of the journal, for CategoryRegistry
+    public CategoryRepository categories() {
+        return categoryView;
+    }
+
+    private final class Categories implements CategoryRepository {
+        @Override
+        public List<Category> loadAll() throws SQLException {
+            synchronized (JournalRepository.this) {
+                open();
+                return sortedCategories();
+            }
+        }
+
+        @Override
+        public Category insert(String name, String description, TransactionType type) throws SQLException {
+            synchronized (JournalRepository.this) {
+                Category category = new Category(nextCategoryId, name, description, type);
+                write(journal -> journal.appendCategory(category));
+                nextCategoryId++;
+                categories.put(category.id(), category);
+                compactIfNeeded();
+                return category;
+            }
+        }
+
+        @Override
+        public void update(Category category, boolean typeChanged) throws SQLException {
+            synchronized (JournalRepository.this) {
+                write(journal -> journal.appendCategory(category));
+                categories.put(category.id(), category);
+                if (typeChanged) {
+                    for (int row = 0; row < store.size(); row++) {
+                        if (store.categoryId(row) == category.id()) {
+                            store.setType(row, category.type());
+                        }
+                    }
+                }
+                compactIfNeeded();
+            }
+        }
+
+        @Override
+        public boolean delete(int id) throws SQLException {
+            synchronized (JournalRepository.this) {
+                if (countByCategory(id) > 0) {
+                    return false;
+                }
+                write(journal -> journal.appendCategoryDeleted(id));
+                categories.remove(id);
+                compactIfNeeded();
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// src/LazyDatePicker.java
+import org.jdesktop.swingx.JXDatePicker;
+import org.jdesktop.swingx.plaf.basic.BasicDatePickerUI;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Stands in for a JXDatePicker until it is first used. Loading and laying out SwingX costs noticeable
+// startup time, so the picker is only created when the placeholder button is clicked; its popup then
+// opens right away. Until then getDate() is null.
+public class LazyDatePicker extends JPanel {
+    private final List<ActionListener> listeners = new ArrayList<>();
+    private final JButton placeholder = new JButton("Datum wählen...");
+    private JXDatePicker picker;
+
+    public LazyDatePicker() {
+        super(new BorderLayout());
+        placeholder.addActionListener(e -> {
+            picker();
+            SwingUtilities.invokeLater(() -> {
+                if (picker.getUI() instanceof BasicDatePickerUI ui) {
+                    ui.toggleShowPopup();
+                }
+            });
+        });
+        add(placeholder, BorderLayout.CENTER);
+    }
+
+    public Date getDate() {
+        return picker != null ? picker.getDate() : null;
+    }
+
+    public void setDate(Date date) {
+        if (picker != null || date != null) {
+            picker().setDate(date);
+        }
+    }
+
+    public void addActionListener(ActionListener listener) {
+        listeners.add(listener);
+        if (picker != null) {
+            picker.addActionListener(listener);
+        }
+    }
+
+    // Creates the picker and puts it in place of the placeholder
+    private JXDatePicker picker() {
+        if (picker == null) {
+            picker = new JXDatePicker();
+            listeners.forEach(picker::addActionListener);
+            remove(placeholder);
+            add(picker, BorderLayout.CENTER);
+            revalidate();
+            repaint();
+        }
+        return picker;
+    }
+}
@@ -0,0 +1,119 @@
+// src/MeasuredBookingRepository.java
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// Records latency, rows and bytes of every call of another BookingRepository in Metrics ("db.<method>")
+public class MeasuredBookingRepository implements BookingRepository {
+    private final BookingRepository repository;
+
+    public MeasuredBookingRepository(BookingRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Summary summarize(BookingFilter filter) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.summarize")) {
+            Summary summary = repository.summarize(filter);
+            sample.rows(summary.count());
+            return summary;
+        }
+    }
+
+    @Override
+    public BookingStore loadAll(BookingFilter filter, BookingSort sort, int expectedRows) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.loadAll")) {
+            return sample.store(repository.loadAll(filter, sort, expectedRows));
+        }
+    }
+
+    @Override
+    public BookingStore loadPage(BookingFilter filter, BookingSort sort, PageKey start, int offset, int limit) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.loadPage")) {
+            return sample.store(repository.loadPage(filter, sort, start, offset, limit));
+        }
+    }
+
+    @Override
+    public BookingStore loadByIds(int[] ids, BookingFilter filter) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.loadByIds")) {
+            return sample.store(repository.loadByIds(ids, filter));
+        }
+    }
+
+    @Override
+    public void stream(BookingFilter filter, BookingSort sort, int fetchSize, BookingConsumer consumer) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.stream")) {
+            repository.stream(filter, sort, fetchSize, (id, info, cents, type, date, categoryId) -> {
+                sample.rows(1);
+                consumer.accept(id, info, cents, type, date, categoryId);
+            });
+        }
+    }
+
+    @Override
+    public int insert(LocalDate date, String info, double betrag, int categoryId) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.insert")) {
+            sample.rows(1);
+            return repository.insert(date, info, betrag, categoryId);
+        }
+    }
+
+    @Override
+    public String[] updateAll(List<FieldUpdate> updates) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.updateAll")) {
+            sample.rows(updates.size());
+            return repository.updateAll(updates);
+        }
+    }
+
+    @Override
+    public void delete(int id) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.delete")) {
+            sample.rows(1);
+            repository.delete(id);
+        }
+    }
+
+    @Override
+    public int deleteAll(int[] ids) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.deleteAll")) {
+            sample.rows(ids.length);
+            return repository.deleteAll(ids);
+        }
+    }
+
+    @Override
+    public void moveToCategory(int[] ids, int categoryId) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.moveToCategory")) {
+            sample.rows(ids.length);
+            repository.moveToCategory(ids, categoryId);
+        }
+    }
+
+    @Override
+    public void shiftDates(int[] ids, int days) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.shiftDates")) {
+            sample.rows(ids.length);
+            repository.shiftDates(ids, days);
+        }
+    }
+
+    @Override
+    public int countByCategory(int categoryId) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.countByCategory")) {
+            int count = repository.countByCategory(categoryId);
+            sample.rows(count);
+            return count;
+        }
+    }
+
+    @Override
+    public int[] deleteByCategory(int categoryId, int limit) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("db.deleteByCategory")) {
+            int[] deleted = repository.deleteByCategory(categoryId, limit);
+            sample.rows(deleted.length);
+            return deleted;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+// src/Metrics.java
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histograms, row counts and materialized bytes per named operation (e.g. "db.loadPage"),
+// shown in the DiagnosticsWindow and appended to metrics.file every metrics.dumpSeconds.
+// Every sample is also a JFR event "haushaltsbuch.Operation", visible in a flight recording
+// (java -XX:StartFlightRecording ...) together with its thread and stack trace.
+public class Metrics {
+    private static final Path FILE = Path.of(AppConfig.getString("metrics.file", "haushaltsbuch-metrics.log"));
+    // Bucket i counts latencies below 2^i microseconds (the last one everything above)
+    private static final int BUCKETS = 32;
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService dumper;
+
+    @Name("haushaltsbuch.Operation")
+    @Label("Haushaltsbuch Operation")
+    @jdk.jfr.Category("Haushaltsbuch")
+    @Description("Database or table model operation measured by Metrics")
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Zeilen")
+        long rows;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    // One running measurement; closing it records the elapsed time
+    public static final class Sample implements AutoCloseable {
+        private final String operation;
+        private final long started = System.nanoTime();
+        private final OperationEvent event = new OperationEvent();
+        private long rows;
+        private long bytes;
+        private boolean closed;
+        // Registered with the EdtWatchdog as the operation running on the EDT
+        private final boolean onEdt;
+
+        private Sample(String operation, boolean onEdt) {
+            this.operation = operation;
+            this.onEdt = onEdt;
+            if (onEdt) {
+                EdtWatchdog.enter(operation);
+            }
+            event.begin();
+        }
+
+        public Sample rows(long rows) {
+            this.rows += rows;
+            return this;
+        }
+
+        public Sample bytes(long bytes) {
+            this.bytes += bytes;
+            return this;
+        }
+
+        // Counts the rows and heap bytes of a loaded store and returns it
+        public BookingStore store(BookingStore store) {
+            rows(store.size());
+            bytes(store.memoryBytes());
+            return store;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (onEdt) {
+                EdtWatchdog.exit();
+            }
+            long nanos = System.nanoTime() - started;
+            STATS.computeIfAbsent(operation, name -> new Stats()).record(nanos, rows, bytes);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.rows = rows;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    // Point-in-time copy of the statistics of one operation; times in nanoseconds
+    public record Snapshot(String operation, long count, long totalNanos, long maxNanos,
+                           long p50Nanos, long p95Nanos, long p99Nanos, long rows, long bytes) {
+        public long meanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+    }
+
+    private static final class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos, long sampleRows, long sampleBytes) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            rows.add(sampleRows);
+            bytes.add(sampleBytes);
+            long micros = nanos / 1000;
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        }
+
+        Snapshot snapshot(String operation) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long max = maxNanos.get();
+            return new Snapshot(operation, count.sum(), totalNanos.sum(), max, percentile(counts, total, 0.50, max),
+                    percentile(counts, total, 0.95, max), percentile(counts, total, 0.99, max), rows.sum(), bytes.sum());
+        }
+
+        // Upper bound of the bucket containing the percentile, at most the maximum
+        private static long percentile(long[] counts, long total, double percentile, long max) {
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(max, (1L << i) * 1000);
+                }
+            }
+            return max;
+        }
+    }
+
+    // Must be closed on the thread that started it
+    public static Sample start(String operation) {
+        return new Sample(operation, SwingUtilities.isEventDispatchThread());
+    }
+
+    // For operations that end in a later task or event, e.g. a background load started on the EDT
+    public static Sample startAsync(String operation) {
+        return new Sample(operation, false);
+    }
+
+    // Records a duration that was not measured with a Sample, e.g. since the JVM started
+    public static void record(String operation, long nanos) {
+        STATS.computeIfAbsent(operation, name -> new Stats()).record(nanos, 0, 0);
+    }
+
+    // All operations sorted by name
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        STATS.forEach((operation, stats) -> snapshots.add(stats.snapshot(operation)));
+        snapshots.sort((a, b) -> a.operation().compareTo(b.operation()));
+        return snapshots;
+    }
+
+    public static void reset() {
+        STATS.clear();
+    }
+
+    // Appends the statistics every metrics.dumpSeconds (0 = never) and once more on exit
+    public static synchronized void startDump() {
+        int seconds = AppConfig.getInt("metrics.dumpSeconds", 300);
+        if (dumper != null || seconds <= 0) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(Metrics::dump, seconds, seconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dump, "metrics-dump-exit"));
+    }
+
+    // Appends one block of tab-separated lines to the metrics file, times in milliseconds
+    public static synchronized void dump() {
+        List<Snapshot> snapshots = snapshot();
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(FILE, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.println("# " + LocalDateTime.now() + " java " + Runtime.version());
+            out.println("operation\tcount\tmean\tp50\tp95\tp99\tmax\trows\tbytes");
+            for (Snapshot s : snapshots) {
+                out.printf(Locale.ROOT, "%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%d\t%d%n", s.operation(), s.count(),
+                        millis(s.meanNanos()), millis(s.p50Nanos()), millis(s.p95Nanos()), millis(s.p99Nanos()),
+                        millis(s.maxNanos()), s.rows(), s.bytes());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,110 @@
+// src/MonthlyRollup.java
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pre-aggregated sums and counts of Buchungen per month, category and transaction type (table MonatsSumme).
+// Every change of Buchungen applies its Delta in the same transaction, so monthly reports never
+// have to scan the bookings. rebuild() recomputes the table from scratch; the table itself is created by SchemaManager.
+public class MonthlyRollup {
+    public record Row(YearMonth month, int categoryId, TransactionType type, long cents, int count) {
+    }
+
+    private record Key(YearMonth month, int categoryId) {
+    }
+
+    // Changes of one transaction, summed per month and category
+    public static final class Delta {
+        private final Map<Key, long[]> changes = new HashMap<>();
+
+        public Delta add(LocalDate date, int categoryId, long cents, int count) {
+            long[] change = changes.computeIfAbsent(new Key(YearMonth.from(date), categoryId), key -> new long[2]);
+            change[0] += cents;
+            change[1] += count;
+            return this;
+        }
+
+        // The transaction type is taken from the category, as for the bookings themselves
+        public void apply(Connection conn) throws SQLException {
+            if (changes.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(DatabaseConnection.dialect().rollupUpsert())) {
+                for (Map.Entry<Key, long[]> entry : changes.entrySet()) {
+                    pstmt.setString(1, entry.getKey().month().toString());
+                    pstmt.setBigDecimal(2, BigDecimal.valueOf(entry.getValue()[0], 2));
+                    pstmt.setLong(3, entry.getValue()[1]);
+                    pstmt.setInt(4, entry.getKey().categoryId());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            changes.clear();
+        }
+    }
+
+    // The journal engine computes the sums when they are loaded
+    public static void rebuild() throws SQLException {
+        if (JournalRepository.isSelected()) {
+            return;
+        }
+        String month = DatabaseConnection.dialect().yearMonth("b.Datum");
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = AsyncDataAccess.track(conn.createStatement())) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.executeUpdate("DELETE FROM MonatsSumme");
+                stmt.executeUpdate("INSERT INTO MonatsSumme (Monat, KategorieID, Einzahlung_Auszahlung, Summe, Anzahl) " +
+                        "SELECT " + month + ", b.KategorieID, k.Einzahlung_Auszahlung, SUM(b.Betrag), COUNT(*) " +
+                        "FROM Buchungen b JOIN Kategorie k ON b.KategorieID = k.ID " +
+                        "GROUP BY " + month + ", b.KategorieID, k.Einzahlung_Auszahlung");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // All bookings of the category were deleted
+    public static void removeCategory(Connection conn, int categoryId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM MonatsSumme WHERE KategorieID = ?")) {
+            pstmt.setInt(1, categoryId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // The bookings of a category move to the other side when its type changes
+    public static void changeType(Connection conn, int categoryId, TransactionType type) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE MonatsSumme SET Einzahlung_Auszahlung = ? WHERE KategorieID = ?")) {
+            pstmt.setInt(1, type.getValue());
+            pstmt.setInt(2, categoryId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // All rollup rows, newest month first
+    public static List<Row> load() throws SQLException {
+        if (JournalRepository.isSelected()) {
+            return JournalRepository.instance().monthlyRows();
+        }
+        String sql = "SELECT Monat, KategorieID, Einzahlung_Auszahlung, Summe, Anzahl FROM MonatsSumme " +
+                "WHERE Anzahl > 0 ORDER BY Monat DESC, KategorieID";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = AsyncDataAccess.track(conn.prepareStatement(sql));
+             ResultSet rs = pstmt.executeQuery()) {
+            List<Row> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(new Row(YearMonth.parse(rs.getString("Monat")), rs.getInt("KategorieID"),
+                        TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung")),
+                        rs.getBigDecimal("Summe").movePointRight(2).longValue(), rs.getInt("Anzahl")));
+            }
+            return rows;
+        }
+    }
+}
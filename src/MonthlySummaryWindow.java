@@ -0,0 +1,89 @@
+// src/MonthlySummaryWindow.java
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.NumberFormat;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Monthly report read from the MonatsSumme rollup: sums per category and the balance per month
+public class MonthlySummaryWindow extends JFrame {
+    private final CategoryRegistry categories;
+    private final AsyncDataAccess dataAccess;
+    private final NumberFormat currency = NumberFormat.getCurrencyInstance(Locale.GERMANY);
+    private final DefaultTableModel categoryModel = readOnlyModel("Monat", "Kategorie", "Typ", "Summe", "Anzahl");
+    private final DefaultTableModel balanceModel = readOnlyModel("Monat", "Einnahmen", "Ausgaben", "Saldo");
+
+    public MonthlySummaryWindow(JFrame parent, CategoryRegistry categories, AsyncDataAccess dataAccess) {
+        this.categories = categories;
+        this.dataAccess = dataAccess;
+        setTitle("Monatsübersicht");
+        setLayout(new BorderLayout());
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Saldo pro Monat", new JScrollPane(new JTable(balanceModel)));
+        tabs.addTab("Kategorien pro Monat", new JScrollPane(new JTable(categoryModel)));
+        add(tabs, BorderLayout.CENTER);
+
+        // Recomputes the rollup from all bookings, e.g. after changes made outside the application
+        JButton rebuildButton = new JButton("Neu berechnen");
+        rebuildButton.addActionListener(e -> {
+            rebuildButton.setEnabled(false);
+            dataAccess.submit(() -> {
+                MonthlyRollup.rebuild();
+                return MonthlyRollup.load();
+            }, rows -> {
+                rebuildButton.setEnabled(true);
+                show(rows);
+            }, ex -> {
+                rebuildButton.setEnabled(true);
+                ex.printStackTrace();
+                UIHelper.showErrorDialog(this, "Fehler beim Neuberechnen der Monatsübersicht!");
+            });
+        });
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(rebuildButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        dataAccess.submit(MonthlyRollup::load, this::show, Throwable::printStackTrace);
+
+        setSize(700, 400);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(parent);
+        setVisible(true);
+    }
+
+    private void show(List<MonthlyRollup.Row> rows) {
+        categoryModel.setRowCount(0);
+        balanceModel.setRowCount(0);
+        // Income and expenses in cents per month, newest first
+        Map<YearMonth, long[]> balances = new TreeMap<>((a, b) -> b.compareTo(a));
+        for (MonthlyRollup.Row row : rows) {
+            Category category = categories.byId(row.categoryId());
+            categoryModel.addRow(new Object[]{row.month(), category != null ? category.name() : row.categoryId(),
+                    row.type(), format(row.cents()), row.count()});
+            long[] balance = balances.computeIfAbsent(row.month(), month -> new long[2]);
+            balance[row.type() == TransactionType.EINZAHLUNG ? 0 : 1] += row.cents();
+        }
+        for (Map.Entry<YearMonth, long[]> entry : balances.entrySet()) {
+            long[] balance = entry.getValue();
+            balanceModel.addRow(new Object[]{entry.getKey(), format(balance[0]), format(balance[1]), format(balance[0] - balance[1])});
+        }
+    }
+
+    private String format(long cents) {
+        return currency.format(BookingStore.toBetrag(cents));
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,303 @@
+// src/SchemaManager.java
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Versioned schema migrations, run at startup. The applied versions are kept in SchemaVersion; every
+// migration is idempotent, so a migration interrupted by a crash is simply repeated. A named lock
+// keeps two clients from migrating the same database at once.
+// verify() reports missing indexes and hot queries whose plan reads a large table completely.
+public class SchemaManager {
+    private static final String LOCK_NAME = "haushaltsbuch_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+    // Full scans of tables with fewer estimated rows are cheaper than an index lookup and not reported
+    private static final long SCAN_REPORT_ROWS = 1000;
+    // Table scans in an H2 plan, e.g. "FROM public.buchungen /* public.buchungen.tableScan */"
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private record Migration(int version, String description, Step step) {
+    }
+
+    // An index whose leading columns serve one of the access paths below
+    private record RequiredIndex(String table, String name, boolean fulltext, String... columns) {
+        String label() {
+            return table + "(" + String.join(", ", columns) + ")";
+        }
+    }
+
+    // A query the application runs often, with sample values in place of the parameters
+    private record HotQuery(String description, String sql) {
+    }
+
+    private static final List<RequiredIndex> INDEXES = List.of(
+            // Date filter and keyset paging on (Datum, ID); InnoDB appends the primary key to every index
+            new RequiredIndex("Buchungen", "idx_buchungen_datum", false, "Datum"),
+            // Join with Kategorie, bookings of a category (delete, count)
+            new RequiredIndex("Buchungen", "idx_buchungen_kategorie", false, "KategorieID"),
+            // Category lookup by name and type
+            new RequiredIndex("Kategorie", "idx_kategorie_bezeichnung", false, "Bezeichnung", "Einzahlung_Auszahlung"),
+            // Word searches in Custom SQL (MATCH ... AGAINST); substring search uses the InfoIndex
+            new RequiredIndex("Buchungen", "ft_buchungen_info", true, "Info"),
+            // Rollup rows of a category (cascade delete, type change)
+            new RequiredIndex("MonatsSumme", "idx_monatssumme_kategorie", false, "KategorieID"),
+            // Pruning old change log entries
+            new RequiredIndex("Aenderung", "idx_aenderung_zeit", false, "Zeit"));
+
+    private static final List<HotQuery> HOT_QUERIES = List.of(
+            new HotQuery("Buchungen eines Zeitraums",
+                    "SELECT b.ID, b.Info, k.Einzahlung_Auszahlung, b.Betrag, b.Datum, b.KategorieID FROM Buchungen b " +
+                            "JOIN Kategorie k ON b.KategorieID = k.ID WHERE b.Datum >= '2024-01-01' AND b.Datum <= '2024-01-31' " +
+                            "ORDER BY b.Datum, b.ID"),
+            new HotQuery("Nächste Seite (Keyset)",
+                    "SELECT b.ID FROM Buchungen b JOIN Kategorie k ON b.KategorieID = k.ID " +
+                            "WHERE (b.Datum > '2024-01-01' OR (b.Datum = '2024-01-01' AND b.ID > 0)) ORDER BY b.Datum, b.ID LIMIT 200"),
+            new HotQuery("Buchungen einer Kategorie zählen", "SELECT COUNT(*) FROM Buchungen WHERE KategorieID = 1"),
+            new HotQuery("Buchungen einer Kategorie löschen", "SELECT ID FROM Buchungen WHERE KategorieID = 1 ORDER BY ID LIMIT 500"),
+            new HotQuery("Kategorie nach Bezeichnung",
+                    "SELECT ID FROM Kategorie WHERE Bezeichnung = 'Sonstiges' AND Einzahlung_Auszahlung = 0"),
+            new HotQuery("Monatssummen einer Kategorie", "SELECT Monat FROM MonatsSumme WHERE KategorieID = 1"),
+            new HotQuery("Änderungen seit einer Version",
+                    "SELECT Version, Tabelle, ID, Client FROM Aenderung WHERE Version > 1000 ORDER BY Version LIMIT 5000"));
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Tabellen Kategorie und Buchungen", conn -> execute(conn,
+                    "CREATE TABLE IF NOT EXISTS Kategorie (ID INT AUTO_INCREMENT PRIMARY KEY, Bezeichnung VARCHAR(100) NOT NULL, " +
+                            "Kurzbeschreibung VARCHAR(255), Einzahlung_Auszahlung TINYINT NOT NULL)",
+                    "CREATE TABLE IF NOT EXISTS Buchungen (ID INT AUTO_INCREMENT PRIMARY KEY, Datum DATE NOT NULL, " +
+                            "Info VARCHAR(255), Betrag DECIMAL(15,2) NOT NULL, KategorieID INT NOT NULL)")),
+            new Migration(2, "Indizes für Datum, Kategorie und Bezeichnung", conn -> {
+                createIndex(conn, index("idx_buchungen_datum"));
+                createIndex(conn, index("idx_buchungen_kategorie"));
+                createIndex(conn, index("idx_kategorie_bezeichnung"));
+            }),
+            new Migration(3, "Tabelle ImportCheckpoint", conn -> execute(conn,
+                    "CREATE TABLE IF NOT EXISTS ImportCheckpoint (Datei VARCHAR(512) PRIMARY KEY, Zeilen BIGINT NOT NULL, " +
+                            "Aktualisiert TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)")),
+            new Migration(4, "Tabelle MonatsSumme", conn -> {
+                execute(conn, "CREATE TABLE IF NOT EXISTS MonatsSumme (Monat CHAR(7) NOT NULL, KategorieID INT NOT NULL, " +
+                        "Einzahlung_Auszahlung TINYINT NOT NULL, Summe DECIMAL(15,2) NOT NULL, Anzahl INT NOT NULL, " +
+                        "PRIMARY KEY (Monat, KategorieID, Einzahlung_Auszahlung))");
+                createIndex(conn, index("idx_monatssumme_kategorie"));
+                MonthlyRollup.rebuild();
+            }),
+            new Migration(5, "Volltextindex auf Buchungen.Info", conn -> {
+                if (DatabaseConnection.dialect().supportsFullText()) {
+                    createIndex(conn, index("ft_buchungen_info"));
+                }
+            }),
+            new Migration(6, "Tabelle Aenderung", conn -> {
+                execute(conn, "CREATE TABLE IF NOT EXISTS Aenderung (Version BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "Tabelle CHAR(1) NOT NULL, ID INT NOT NULL, Client CHAR(36) NOT NULL, Zeit TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                createIndex(conn, index("idx_aenderung_zeit"));
+            }));
+
+    // Brings the schema to the newest version; returns the versions applied
+    public static List<Integer> migrate() throws SQLException {
+        List<Integer> applied = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            execute(conn, "CREATE TABLE IF NOT EXISTS SchemaVersion (Version INT PRIMARY KEY, Beschreibung VARCHAR(200) NOT NULL, " +
+                    "Angewendet TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            lock(conn);
+            try {
+                int current = currentVersion(conn);
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version() <= current) {
+                        continue;
+                    }
+                    // DDL commits implicitly in MariaDB, so each step is applied on its own
+                    migration.step().apply(conn);
+                    try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO SchemaVersion (Version, Beschreibung) VALUES (?, ?)")) {
+                        pstmt.setInt(1, migration.version());
+                        pstmt.setString(2, migration.description());
+                        pstmt.executeUpdate();
+                    }
+                    applied.add(migration.version());
+                }
+            } finally {
+                unlock(conn);
+            }
+        }
+        return applied;
+    }
+
+    // Missing indexes and hot queries that scan a large table completely, as readable messages
+    public static List<String> verify() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (RequiredIndex index : INDEXES) {
+                if (index.fulltext() && !DatabaseConnection.dialect().supportsFullText()) {
+                    continue;
+                }
+                if (!hasIndex(conn, index)) {
+                    problems.add("Index fehlt: " + index.label());
+                }
+            }
+            for (HotQuery query : HOT_QUERIES) {
+                for (Map.Entry<String, Long> scan : fullScans(conn, query.sql()).entrySet()) {
+                    if (scan.getValue() >= SCAN_REPORT_ROWS) {
+                        problems.add(String.format("%s liest %s vollständig (ca. %,d Zeilen)",
+                                query.description(), scan.getKey(), scan.getValue()));
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    // Tables the plan of the query reads completely, with their (estimated) row counts
+    private static Map<String, Long> fullScans(Connection conn, String sql) throws SQLException {
+        Map<String, Long> scans = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                if (DatabaseConnection.dialect() == SqlDialect.H2) {
+                    Matcher matcher = H2_TABLE_SCAN.matcher(rs.getString(1));
+                    while (matcher.find()) {
+                        scans.put(matcher.group(1), 0L);
+                    }
+                } else if ("ALL".equalsIgnoreCase(rs.getString("type"))) {
+                    scans.put(rs.getString("table"), rs.getLong("rows"));
+                }
+            }
+        }
+        if (DatabaseConnection.dialect() == SqlDialect.H2) {
+            // H2 plans carry no row estimate
+            for (Map.Entry<String, Long> scan : scans.entrySet()) {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + scan.getKey())) {
+                    scan.setValue(rs.next() ? rs.getLong(1) : 0);
+                }
+            }
+        }
+        return scans;
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(Version), 0) FROM SchemaVersion")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        if (!DatabaseConnection.dialect().supportsNamedLocks()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Schema wird gerade von einem anderen Client aktualisiert.");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        if (!DatabaseConnection.dialect().supportsNamedLocks()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        }
+    }
+
+    // Creates the index unless an index of the same kind with the same leading columns exists already, under any name
+    private static void createIndex(Connection conn, RequiredIndex index) throws SQLException {
+        if (hasIndex(conn, index)) {
+            return;
+        }
+        execute(conn, "CREATE " + (index.fulltext() ? "FULLTEXT " : "") + "INDEX " + index.name()
+                + " ON " + index.table() + " (" + String.join(", ", index.columns()) + ")");
+    }
+
+    private static boolean hasIndex(Connection conn, RequiredIndex index) throws SQLException {
+        // Index name -> its columns in index order
+        Map<String, List<String>> indexes = new HashMap<>();
+        DatabaseMetaData metaData = conn.getMetaData();
+        String table = metaData.storesLowerCaseIdentifiers() ? index.table().toLowerCase(Locale.ROOT)
+                : metaData.storesUpperCaseIdentifiers() ? index.table().toUpperCase(Locale.ROOT) : index.table();
+        try (ResultSet rs = metaData.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (name == null || column == null) {
+                    continue;
+                }
+                List<String> columns = indexes.computeIfAbsent(name, k -> new ArrayList<>());
+                int position = rs.getInt("ORDINAL_POSITION");
+                while (columns.size() < position) {
+                    columns.add(null);
+                }
+                columns.set(position - 1, column.toLowerCase(Locale.ROOT));
+            }
+        }
+        // A plain index on the column does not serve MATCH ... AGAINST, and a FULLTEXT one does not serve range scans
+        Set<String> fullText = fullTextIndexes(conn, table);
+        for (Map.Entry<String, List<String>> entry : indexes.entrySet()) {
+            List<String> columns = entry.getValue();
+            if (fullText.contains(entry.getKey().toLowerCase(Locale.ROOT)) == index.fulltext()
+                    && columns.size() >= index.columns().length && leadingColumnsMatch(columns, index.columns())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Lower-case names of the FULLTEXT indexes of the table
+    private static Set<String> fullTextIndexes(Connection conn, String table) throws SQLException {
+        Set<String> names = new HashSet<>();
+        String sql = DatabaseConnection.dialect().fullTextIndexes();
+        if (sql == null) {
+            return names;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static boolean leadingColumnsMatch(List<String> columns, String[] required) {
+        for (int i = 0; i < required.length; i++) {
+            if (!required[i].toLowerCase(Locale.ROOT).equals(columns.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static RequiredIndex index(String name) {
+        for (RequiredIndex index : INDEXES) {
+            if (index.name().equals(name)) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static void execute(Connection conn, String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
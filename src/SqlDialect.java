@@ -0,0 +1,67 @@
+// src/SqlDialect.java
+
+// The few SQL constructs that differ between the supported JDBC engines. Everything else is
+// written in the common subset; H2 runs in MariaDB compatibility mode.
+public enum SqlDialect {
+    // MariaDB server over TCP
+    MARIADB,
+    // Embedded single-file H2 database inside the application process (needs the H2 jar on the classpath)
+    H2;
+
+    public static SqlDialect fromUrl(String url) {
+        return url.startsWith("jdbc:h2:") ? H2 : MARIADB;
+    }
+
+    // "YYYY-MM" of a date column
+    public String yearMonth(String column) {
+        return this == H2 ? "FORMATDATETIME(" + column + ", 'yyyy-MM')" : "DATE_FORMAT(" + column + ", '%Y-%m')";
+    }
+
+    // Adds sum and count to a MonatsSumme row; parameters: month, sum, count, category ID.
+    // The transaction type is taken from the category.
+    public String rollupUpsert() {
+        if (this == H2) {
+            return "MERGE INTO MonatsSumme m USING (SELECT CAST(? AS CHAR(7)) AS Monat, k.ID AS KategorieID, " +
+                    "k.Einzahlung_Auszahlung AS Typ, CAST(? AS DECIMAL(15,2)) AS Summe, CAST(? AS INT) AS Anzahl " +
+                    "FROM Kategorie k WHERE k.ID = ?) s " +
+                    "ON (m.Monat = s.Monat AND m.KategorieID = s.KategorieID AND m.Einzahlung_Auszahlung = s.Typ) " +
+                    "WHEN MATCHED THEN UPDATE SET m.Summe = m.Summe + s.Summe, m.Anzahl = m.Anzahl + s.Anzahl " +
+                    "WHEN NOT MATCHED THEN INSERT (Monat, KategorieID, Einzahlung_Auszahlung, Summe, Anzahl) " +
+                    "VALUES (s.Monat, s.KategorieID, s.Typ, s.Summe, s.Anzahl)";
+        }
+        return "INSERT INTO MonatsSumme (Monat, KategorieID, Einzahlung_Auszahlung, Summe, Anzahl) " +
+                "SELECT ?, k.ID, k.Einzahlung_Auszahlung, ?, ? FROM Kategorie k WHERE k.ID = ? " +
+                "ON DUPLICATE KEY UPDATE Summe = Summe + VALUES(Summe), Anzahl = Anzahl + VALUES(Anzahl)";
+    }
+
+    // Sets the line count of an import checkpoint; parameters: file key, lines
+    public String checkpointUpsert() {
+        return this == H2
+                ? "MERGE INTO ImportCheckpoint (Datei, Zeilen) KEY (Datei) VALUES (?, ?)"
+                : "INSERT INTO ImportCheckpoint (Datei, Zeilen) VALUES (?, ?) ON DUPLICATE KEY UPDATE Zeilen = VALUES(Zeilen)";
+    }
+
+    // Sum of CRC32("ID:Info") over Buchungen, or null if the engine has no CRC32 function
+    public String infoChecksum() {
+        return this == H2 ? null : "COALESCE(SUM(CRC32(CONCAT(ID, ':', COALESCE(Info, '')))), 0)";
+    }
+
+    // GET_LOCK/RELEASE_LOCK; an embedded database has only one client anyway
+    public boolean supportsNamedLocks() {
+        return this == MARIADB;
+    }
+
+    // Names of the FULLTEXT indexes of a table; parameter: table name. Null if the engine has none.
+    public String fullTextIndexes() {
+        return this == H2 ? null : "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_TYPE = 'FULLTEXT'";
+    }
+
+    public boolean supportsFullText() {
+        return this == MARIADB;
+    }
+
+    public boolean supportsLoadData() {
+        return this == MARIADB;
+    }
+}
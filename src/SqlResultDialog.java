@@ -0,0 +1,173 @@
+// src/SqlResultDialog.java
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Result window of a Custom SQL query. The query runs in the background with a timeout and a row cap;
+// rows are fetched in batches of FETCH_SIZE and appear in the table while they arrive.
+// Cancel (or closing the window) cancels the statement on the server.
+public class SqlResultDialog extends JDialog {
+    private static final int QUERY_TIMEOUT_SECONDS = AppConfig.getInt("sql.queryTimeoutSeconds", 30);
+    private static final int MAX_ROWS = AppConfig.getInt("sql.maxRows", 10_000);
+    private static final int FETCH_SIZE = AppConfig.getInt("sql.fetchSize", 500);
+    // Rows are handed to the EDT in chunks: when a chunk is full or PUBLISH_INTERVAL_NANOS have passed
+    private static final int CHUNK_ROWS = 500;
+    private static final long PUBLISH_INTERVAL_NANOS = 100_000_000L;
+
+    private final ResultTableModel model = new ResultTableModel();
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JButton cancelButton = new JButton("Abbrechen");
+    private final Timer clock;
+    private final long started = System.nanoTime();
+    private final AsyncDataAccess.Request request;
+    private boolean finished;
+
+    public SqlResultDialog(JFrame parent, AsyncDataAccess dataAccess, String sql) {
+        super(parent, "Query Results", false);
+        setLayout(new BorderLayout());
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(cancelButton, BorderLayout.EAST);
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        add(statusPanel, BorderLayout.SOUTH);
+
+        clock = new Timer(100, e -> statusLabel.setText(String.format("%,d Zeilen, %.1f s ...", model.getRowCount(), elapsedSeconds())));
+        clock.start();
+
+        request = dataAccess.submit(() -> run(sql), count -> {
+            String message = String.format("%,d Zeilen in %.1f s", count, elapsedSeconds());
+            if (count >= MAX_ROWS) {
+                message += " (auf " + MAX_ROWS + " Zeilen begrenzt)";
+            }
+            finish(message);
+        }, e -> {
+            e.printStackTrace();
+            if (e instanceof SQLTimeoutException) {
+                finish("Zeitlimit von " + QUERY_TIMEOUT_SECONDS + " s überschritten");
+            } else {
+                finish("Fehler: " + e.getMessage());
+                UIHelper.showErrorDialog(this, "Error executing SQL query!");
+            }
+        });
+
+        cancelButton.addActionListener(e -> {
+            request.cancel();
+            finish(String.format("Abgebrochen nach %,d Zeilen", model.getRowCount()));
+        });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                request.cancel();
+                clock.stop();
+            }
+        });
+
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        setSize(800, 400);
+        setLocationRelativeTo(parent);
+        setVisible(true);
+    }
+
+    // Runs in the background and returns the number of rows read
+    private int run(String sql) throws SQLException {
+        try (Metrics.Sample sample = Metrics.start("sql.executeQuery");
+             Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = AsyncDataAccess.track(conn.createStatement())) {
+            stmt.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            stmt.setMaxRows(MAX_ROWS);
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                String[] columns = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
+                }
+                SwingUtilities.invokeLater(() -> model.setColumns(columns));
+
+                int count = 0;
+                List<Object[]> chunk = new ArrayList<>();
+                long lastPublish = System.nanoTime();
+                while (rs.next()) {
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    chunk.add(row);
+                    count++;
+                    if (chunk.size() >= CHUNK_ROWS || System.nanoTime() - lastPublish >= PUBLISH_INTERVAL_NANOS) {
+                        publish(chunk);
+                        chunk = new ArrayList<>();
+                        lastPublish = System.nanoTime();
+                    }
+                }
+                publish(chunk);
+                sample.rows(count);
+                return count;
+            }
+        }
+    }
+
+    private void publish(List<Object[]> chunk) {
+        if (!chunk.isEmpty()) {
+            SwingUtilities.invokeLater(() -> model.append(chunk));
+        }
+    }
+
+    private void finish(String message) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        clock.stop();
+        cancelButton.setEnabled(false);
+        statusLabel.setText(message);
+    }
+
+    private double elapsedSeconds() {
+        return (System.nanoTime() - started) / 1e9;
+    }
+
+    // Grows while rows arrive; only used on the EDT
+    private static final class ResultTableModel extends AbstractTableModel {
+        private String[] columns = new String[0];
+        private final List<Object[]> rows = new ArrayList<>();
+
+        void setColumns(String[] columns) {
+            this.columns = columns;
+            fireTableStructureChanged();
+        }
+
+        void append(List<Object[]> chunk) {
+            int first = rows.size();
+            rows.addAll(chunk);
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+}
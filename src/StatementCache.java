@@ -0,0 +1,75 @@
+// src/StatementCache.java
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// LRU cache of the prepared statements of one pooled connection, keyed by SQL text.
+// Evicted statements are closed on the server; a statement that is in use when it is evicted
+// is closed when it is released.
+public class StatementCache {
+    public interface StatementFactory {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    private final Map<String, PreparedStatement> statements;
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<PreparedStatement> evicted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public StatementCache(int capacity) {
+        this.statements = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                if (inUse.contains(eldest.getValue())) {
+                    evicted.add(eldest.getValue());
+                } else {
+                    closeQuietly(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    // Marks the statement as in use until release; null if it is already in use
+    public synchronized PreparedStatement acquire(String key, StatementFactory factory) throws SQLException {
+        PreparedStatement pstmt = statements.get(key);
+        if (pstmt == null || pstmt.isClosed()) {
+            pstmt = factory.prepare();
+            statements.put(key, pstmt);
+        }
+        return inUse.add(pstmt) ? pstmt : null;
+    }
+
+    public synchronized void release(PreparedStatement pstmt) {
+        inUse.remove(pstmt);
+        if (evicted.remove(pstmt)) {
+            closeQuietly(pstmt);
+        }
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    public synchronized void close() {
+        statements.values().forEach(StatementCache::closeQuietly);
+        evicted.forEach(StatementCache::closeQuietly);
+        statements.clear();
+        evicted.clear();
+        inUse.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+// src/StringPool.java
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Deduplicating pool of strings stored as UTF-8 in one byte array. Each distinct string is
+// stored once and referenced by an int; no String objects are kept.
+public class StringPool {
+    private byte[] data;
+    private int dataLength;
+    // offsets[i] .. offsets[i + 1] is the i-th string
+    private int[] offsets;
+    private int count;
+    // Open addressing table of entry index + 1 (0 = empty slot)
+    private int[] table;
+
+    public StringPool() {
+        this(1024);
+    }
+
+    public StringPool(int expectedStrings) {
+        data = new byte[Math.max(64, expectedStrings * 16)];
+        offsets = new int[Math.max(16, expectedStrings) + 1];
+        table = new int[tableSizeFor(expectedStrings)];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return add(bytes, 0, bytes.length);
+    }
+
+    // Returns the reference of an equal string if the pool already contains one
+    public int add(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int ref = table[slot] - 1;
+            if (equalsAt(ref, bytes, offset, length)) {
+                return ref;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (dataLength + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + length));
+        }
+        System.arraycopy(bytes, offset, data, dataLength, length);
+        dataLength += length;
+        if (count + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        int ref = count++;
+        offsets[count] = dataLength;
+        table[slot] = ref + 1;
+        // Keep the load factor below 0.5
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return ref;
+    }
+
+    // Adds a string of another pool without decoding it
+    public int addFrom(StringPool source, int ref) {
+        int start = source.offsets[ref];
+        return add(source.data, start, source.offsets[ref + 1] - start);
+    }
+
+    public String get(int ref) {
+        int start = offsets[ref];
+        return new String(data, start, offsets[ref + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    public int byteLength(int ref) {
+        return offsets[ref + 1] - offsets[ref];
+    }
+
+    // Writes the UTF-8 bytes of the string without decoding it
+    public void write(int ref, OutputStream out) throws IOException {
+        out.write(data, offsets[ref], byteLength(ref));
+    }
+
+    // Approximate heap usage of the pool in bytes
+    public long memoryBytes() {
+        return data.length + 4L * offsets.length + 4L * table.length;
+    }
+
+    private boolean equalsAt(int ref, byte[] bytes, int offset, int length) {
+        int start = offsets[ref];
+        return offsets[ref + 1] - start == length
+                && Arrays.equals(data, start, start + length, bytes, offset, offset + length);
+    }
+
+    private void rehash(int size) {
+        int[] rehashed = new int[size];
+        int mask = size - 1;
+        for (int ref = 0; ref < count; ref++) {
+            int start = offsets[ref];
+            int slot = hash(data, start, offsets[ref + 1] - start) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = ref + 1;
+        }
+        table = rehashed;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the bits, the table size is a power of two
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedStrings) {
+        int size = 16;
+        while (size < expectedStrings * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -2,18 +2,22 @@
 import org.jdesktop.swingx.JXDatePicker;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumn;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.function.Consumer;
 
 public class UIMenuHelper {
-    public static void openCategoryWindow(JFrame parent, Connection conn, Runnable loadCategories, Runnable loadData) {
+    public static void openCategoryWindow(JFrame parent, CategoryRegistry categories, BookingRepository repository,
+                                          AsyncDataAccess dataAccess, Consumer<Category> typeChanged,
+                                          Consumer<int[]> bookingsDeleted) {
         JFrame categoryFrame = new JFrame("Kategorien");
         categoryFrame.setLayout(new BorderLayout());
 
@@ -25,7 +29,7 @@ public class UIMenuHelper {
             }
         };
         JTable categoryTable = new JTable(tableModel);
-        loadCategoriesIntoTable(conn, tableModel);
+        loadCategoriesIntoTable(categories, tableModel);
 
         // Set custom cell editor for "Einzahlung/Auszahlung" column
         TableColumn einAusColumn = categoryTable.getColumnModel().getColumn(3);
@@ -41,23 +45,32 @@ public class UIMenuHelper {
                 String kurzbeschreibung = (String) tableModel.getValueAt(row, 2);
                 TransactionType einAus = (TransactionType) tableModel.getValueAt(row, 3);
 
-                try {
-                    String sql = "UPDATE Kategorie SET Bezeichnung = ?, Kurzbeschreibung = ?, Einzahlung_Auszahlung = ? WHERE ID = ?";
-                    PreparedStatement pstmt = conn.prepareStatement(sql);
-                    pstmt.setString(1, bezeichnung);
-                    pstmt.setString(2, kurzbeschreibung);
-                    pstmt.setInt(3, einAus.getValue());
-                    pstmt.setInt(4, id);
-                    pstmt.executeUpdate();
-
-                    // Update the dropdown in the main UI
-                    loadCategories.run();
-                    loadData.run();
-
-                } catch (SQLException ex) {
+                Category previous = categories.byId(id);
+                Category changed = new Category(id, bezeichnung, kurzbeschreibung, einAus);
+                // Also skips the event of a cell that is put back after a failed update
+                if (changed.equals(previous)) {
+                    return;
+                }
+                // The registry takes the change once it is stored
+                dataAccess.submit(() -> {
+                    categories.update(changed);
+                    return changed;
+                }, updated -> {
+                    // Names are read from the registry; only a changed type moves amounts between columns
+                    if (previous == null || previous.type() != einAus) {
+                        typeChanged.accept(updated);
+                    }
+                }, ex -> {
                     ex.printStackTrace();
+                    if (previous != null && row < tableModel.getRowCount() && tableModel.getValueAt(row, 0).equals(id)) {
+                        tableModel.setValueAt(switch (column) {
+                            case 1 -> previous.name();
+                            case 2 -> previous.description();
+                            default -> previous.type();
+                        }, row, column);
+                    }
                     UIHelper.showErrorDialog(categoryFrame, "Fehler beim Aktualisieren der Kategorie!");
-                }
+                });
             }
         });
 
@@ -78,33 +91,25 @@ public class UIMenuHelper {
                 return;
             }
 
-            if (categoryExists(conn, bezeichnung, einAus)) {
-                UIHelper.showErrorDialog(categoryFrame, "Kategorie mit diesem Namen und Typ existiert bereits!");
-                return;
-            }
-
-            try {
-                String sql = "INSERT INTO Kategorie (Bezeichnung, Kurzbeschreibung, Einzahlung_Auszahlung) VALUES (?, ?, ?)";
-                PreparedStatement pstmt = conn.prepareStatement(sql);
-                pstmt.setString(1, bezeichnung);
-                pstmt.setString(2, kurzbeschreibung);
-                pstmt.setInt(3, einAus.getValue());
-                pstmt.executeUpdate();
-
+            // The duplicate check and the insert run together; null if the category already exists
+            saveButton.setEnabled(false);
+            dataAccess.submit(() -> categories.exists(bezeichnung, einAus) ? null
+                    : categories.insert(bezeichnung, kurzbeschreibung, einAus), inserted -> {
+                saveButton.setEnabled(true);
+                if (inserted == null) {
+                    UIHelper.showErrorDialog(categoryFrame, "Kategorie mit diesem Namen und Typ existiert bereits!");
+                    return;
+                }
                 UIHelper.showInfoDialog(categoryFrame, "Kategorie erfolgreich hinzugefügt!");
-                loadCategoriesIntoTable(conn, tableModel);
+                loadCategoriesIntoTable(categories, tableModel);
                 bezeichnungField.setText("");
                 kurzbeschreibungField.setText("");
                 einAusDropdown.setSelectedIndex(0);
-
-                // Update the dropdown in the main UI
-                loadCategories.run();
-                loadData.run();
-
-            } catch (SQLException ex) {
+            }, ex -> {
+                saveButton.setEnabled(true);
                 ex.printStackTrace();
                 UIHelper.showErrorDialog(categoryFrame, "Fehler beim Hinzufügen der Kategorie!");
-            }
+            });
         });
 
         addCategoryPanel.add(new JLabel("Bezeichnung:"));
@@ -129,47 +134,21 @@ public class UIMenuHelper {
                 int id = (int) tableModel.getValueAt(selectedRow, 0);
 
                 // Check for related entries in the buchungen table
-                try (PreparedStatement checkStmt = conn.prepareStatement("SELECT COUNT(*) FROM Buchungen WHERE KategorieID = ?")) {
-                    checkStmt.setInt(1, id);
-                    ResultSet rs = checkStmt.executeQuery();
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        int confirm = JOptionPane.showConfirmDialog(parent, "Kategorie wird in Buchungen verwendet. Möchten Sie alle Einträge löschen?", "Bestätigung", JOptionPane.YES_NO_OPTION);
-                        if (confirm == JOptionPane.YES_OPTION) {
-                            // Delete related entries in Buchungen
-                            try (PreparedStatement deleteBuchungenStmt = conn.prepareStatement("DELETE FROM Buchungen WHERE KategorieID = ?")) {
-                                deleteBuchungenStmt.setInt(1, id);
-                                deleteBuchungenStmt.executeUpdate();
-                                // Reload the main UI table
-                                loadData.run();
-                            }
-                        } else {
+                dataAccess.submit(() -> repository.countByCategory(id), count -> {
+                    if (count > 0) {
+                        int confirm = JOptionPane.showConfirmDialog(parent, String.format("Kategorie wird in %,d Buchungen verwendet. Möchten Sie alle Einträge löschen?", count), "Bestätigung", JOptionPane.YES_NO_OPTION);
+                        if (confirm != JOptionPane.YES_OPTION) {
                             return;
                         }
                     }
-                } catch (SQLException ex) {
+                    int confirm = JOptionPane.showConfirmDialog(parent, "Sind Sie sicher, dass Sie diese Kategorie löschen möchten?", "Bestätigung", JOptionPane.YES_NO_OPTION);
+                    if (confirm == JOptionPane.YES_OPTION) {
+                        deleteCategory(categoryFrame, categories, repository, dataAccess, tableModel, bookingsDeleted, id, count);
+                    }
+                }, ex -> {
                     ex.printStackTrace();
                     UIHelper.showErrorDialog(categoryFrame, "Fehler beim Überprüfen der Kategorie!");
-                    return;
-                }
-
-                int confirm = JOptionPane.showConfirmDialog(parent, "Sind Sie sicher, dass Sie diese Kategorie löschen möchten?", "Bestätigung", JOptionPane.YES_NO_OPTION);
-                if (confirm == JOptionPane.YES_OPTION) {
-                    try {
-                        String sql = "DELETE FROM Kategorie WHERE ID = ?";
-                        PreparedStatement pstmt = conn.prepareStatement(sql);
-                        pstmt.setInt(1, id);
-                        pstmt.executeUpdate();
-                        loadCategoriesIntoTable(conn, tableModel);
-
-                        // Update the dropdown in the main UI
-                        loadCategories.run();
-                        loadData.run();
-
-                    } catch (SQLException ex) {
-                        ex.printStackTrace();
-                        UIHelper.showErrorDialog(categoryFrame, "Fehler beim Löschen der Kategorie!");
-                    }
-                }
+                });
             }
         });
         popupMenu.add(deleteItem);
@@ -199,36 +178,131 @@ public class UIMenuHelper {
         categoryFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
     }
 
-    private static boolean categoryExists(Connection conn, String bezeichnung, TransactionType einAus) {
-        try {
-            String sql = "SELECT COUNT(*) FROM Kategorie WHERE Bezeichnung = ? AND Einzahlung_Auszahlung = ?";
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, bezeichnung);
-            pstmt.setInt(2, einAus.getValue());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next() && rs.getInt(1) > 0) {
-                return true;
+    // Deletes the category and its bookings in the background with a progress dialog; the deleted
+    // bookings are removed from the main table chunk by chunk
+    private static void deleteCategory(JFrame categoryFrame, CategoryRegistry categories, BookingRepository repository,
+                                       AsyncDataAccess dataAccess, DefaultTableModel tableModel,
+                                       Consumer<int[]> bookingsDeleted, int id, int count) {
+        JDialog dialog = new JDialog(categoryFrame, "Kategorie löschen", false);
+        dialog.setLayout(new BorderLayout(10, 10));
+        JProgressBar progressBar = new JProgressBar(0, Math.max(count, 1));
+        progressBar.setStringPainted(true);
+        JLabel statusLabel = new JLabel(String.format("0 von %,d Buchungen gelöscht", count));
+        JButton cancelButton = new JButton("Abbrechen");
+
+        CategoryDeleter deleter = new CategoryDeleter(repository, categories);
+        dataAccess.submit(() -> deleter.delete(id, progress -> SwingUtilities.invokeLater(() -> {
+            progressBar.setMaximum(progress.total());
+            progressBar.setValue(progress.deleted());
+            statusLabel.setText(String.format("%,d von %,d Buchungen gelöscht", progress.deleted(), progress.total()));
+            bookingsDeleted.accept(progress.deletedIds());
+        })), deleted -> {
+            dialog.dispose();
+            loadCategoriesIntoTable(categories, tableModel);
+            if (!deleted) {
+                UIHelper.showInfoDialog(categoryFrame, "Löschen abgebrochen. Die Kategorie und ihre übrigen Buchungen bleiben erhalten.");
             }
-        } catch (SQLException ex) {
+        }, ex -> {
+            dialog.dispose();
             ex.printStackTrace();
+            loadCategoriesIntoTable(categories, tableModel);
+            UIHelper.showErrorDialog(categoryFrame, "Fehler beim Löschen der Kategorie!");
+        });
+        if (count == 0) {
+            return;
         }
-        return false;
+
+        // The running chunk is finished; the bookings deleted so far stay deleted
+        cancelButton.addActionListener(e -> {
+            deleter.cancel();
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Wird nach dem laufenden Block abgebrochen...");
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(progressBar, BorderLayout.NORTH);
+        panel.add(statusLabel, BorderLayout.CENTER);
+        panel.add(cancelButton, BorderLayout.SOUTH);
+        dialog.add(panel);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialog.setSize(400, 150);
+        dialog.setLocationRelativeTo(categoryFrame);
+        dialog.setVisible(true);
     }
 
-    private static void loadCategoriesIntoTable(Connection conn, DefaultTableModel tableModel) {
+    private static void loadCategoriesIntoTable(CategoryRegistry categories, DefaultTableModel tableModel) {
         tableModel.setRowCount(0);
-        try (Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT ID, Bezeichnung, Kurzbeschreibung, Einzahlung_Auszahlung FROM Kategorie");
-            while (rs.next()) {
-                int id = rs.getInt("ID");
-                String bezeichnung = rs.getString("Bezeichnung");
-                String kurzbeschreibung = rs.getString("Kurzbeschreibung");
-                TransactionType einAus = TransactionType.fromValue(rs.getInt("Einzahlung_Auszahlung"));
-                tableModel.addRow(new Object[]{id, bezeichnung, kurzbeschreibung, einAus});
+        for (Category category : categories.all()) {
+            tableModel.addRow(new Object[]{category.id(), category.name(), category.description(), category.type()});
+        }
+    }
+
+    // Lets the user pick a CSV file and imports it in the background with a progress dialog
+    public static void openImportWindow(JFrame parent, CategoryRegistry categories, AsyncDataAccess dataAccess, Runnable loadData) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV-Dateien", "csv", "txt"));
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        JDialog dialog = new JDialog(parent, "Import " + file.getFileName(), false);
+        dialog.setLayout(new BorderLayout(10, 10));
+        JProgressBar progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        JLabel statusLabel = new JLabel("Import wird gestartet...");
+        JButton cancelButton = new JButton("Abbrechen");
+
+        CsvImporter importer = new CsvImporter(categories);
+        AsyncDataAccess.Request request = dataAccess.submit("import", () -> importer.importFile(file, progress ->
+                SwingUtilities.invokeLater(() -> {
+                    if (progress.totalBytes() > 0) {
+                        progressBar.setValue((int) (progress.bytesRead() * 1000 / progress.totalBytes()));
+                    }
+                    statusLabel.setText(String.format("%,d Zeilen gelesen, %,d importiert, %,.0f Zeilen/s",
+                            progress.lines(), progress.imported(), progress.rowsPerSecond()));
+                })), result -> {
+            dialog.dispose();
+            loadData.run();
+            StringBuilder message = new StringBuilder(String.format("Import abgeschlossen in %.1f s (%s).%n%,d Buchungen importiert.",
+                    result.millis() / 1000.0, result.loadData() ? "LOAD DATA" : "Batch-INSERT", result.imported()));
+            if (result.loadDataFallback() != null) {
+                message.append(String.format("%nLOAD DATA LOCAL INFILE nicht möglich, Batch-INSERT verwendet: %s", result.loadDataFallback()));
             }
-        } catch (SQLException e) {
+            if (result.skipped() > 0) {
+                message.append(String.format("%n%,d Zeilen aus einem früheren Import übersprungen.", result.skipped()));
+            }
+            if (result.rejected() > 0) {
+                message.append(String.format("%n%,d Zeilen abgelehnt:%n", result.rejected())).append(String.join("\n", result.rejects()));
+            }
+            UIHelper.showInfoDialog(parent, message.toString());
+        }, e -> {
+            dialog.dispose();
             e.printStackTrace();
-        }
+            loadData.run();
+            UIHelper.showErrorDialog(parent, "Import fehlgeschlagen: " + e.getMessage()
+                    + "\nEin erneuter Import derselben Datei setzt nach dem letzten gespeicherten Block fort.");
+        });
+
+        cancelButton.addActionListener(e -> {
+            importer.cancel();
+            request.cancel();
+            dialog.dispose();
+            // Committed blocks stay in the database
+            loadData.run();
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(progressBar, BorderLayout.NORTH);
+        panel.add(statusLabel, BorderLayout.CENTER);
+        panel.add(cancelButton, BorderLayout.SOUTH);
+        dialog.add(panel);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialog.setSize(450, 150);
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
     }
 
     public static void openSetDateWindow(JFrame parent, Consumer<LocalDate> setDateConsumer) {
@@ -0,0 +1,115 @@
+// test/DeltaSyncCheck.java
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// Repeatable check of DeltaSync against an in-memory H2 database: catching up from a snapshot
+// version, a log that no longer reaches back, a gap that fills, a gap of a transaction that
+// commits after the grace time and one of a rolled-back transaction. Entries of "other clients"
+// are written directly into Aenderung. Run with the H2 jar on the classpath:
+//   java -cp out:h2-2.2.224.jar DeltaSyncCheck
+// Exits with status 1 if a check fails.
+public class DeltaSyncCheck {
+    private static final String URL = "jdbc:h2:mem:deltasync;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final long GRACE_MILLIS = 1000;
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("db.engine", "h2");
+        System.setProperty("db.url", URL);
+        System.setProperty("sync.gapGraceSeconds", String.valueOf(GRACE_MILLIS / 1000));
+        SchemaManager.migrate();
+
+        Category category = new JdbcCategoryRepository().insert("Miete", "", TransactionType.AUSZAHLUNG);
+        BookingRepository repository = new JdbcBookingRepository();
+        int first = repository.insert(LocalDate.of(2024, 1, 1), "Erste", 10, category.id());
+        int second = repository.insert(LocalDate.of(2024, 1, 2), "Zweite", 20, category.id());
+        DeltaSync sync = new DeltaSync(repository);
+
+        // Catching up from a snapshot: the own inserts are skipped, changes of others are loaded
+        long snapshot = ChangeLog.currentVersion();
+        commitForeign(first);
+        commitForeign(999);
+        DeltaSync.Changes changes = sync.catchUp(snapshot);
+        check(!changes.reload() && ids(changes.bookings()).equals("[" + first + "]"), "catchUp lädt die geänderte Buchung", changes);
+        check(Arrays.equals(changes.deletedIds(), new int[]{999}), "catchUp meldet die gelöschte Buchung", changes);
+
+        // A snapshot older than the oldest entry is reloaded completely
+        check(sync.catchUp(0).reload() == (ChangeLog.oldestVersion() > 1), "catchUp vor dem Log lädt neu", null);
+        check(sync.catchUp(ChangeLog.currentVersion() + 10).reload(), "catchUp nach neu angelegtem Log lädt neu", null);
+        sync.catchUp(ChangeLog.currentVersion());
+
+        // A gap that fills within the grace time
+        try (Connection open = foreignTransaction(first)) {
+            commitForeign(second);
+            changes = sync.poll();
+            check(!changes.reload() && ids(changes.bookings()).equals("[" + second + "]"), "Eintrag hinter einer Lücke wird geladen", changes);
+            open.commit();
+        }
+        changes = sync.poll();
+        check(!changes.reload() && ids(changes.bookings()).equals("[" + first + "]"), "Gefüllte Lücke wird geladen", changes);
+
+        // A transaction that commits after the grace time: reload, then its entry when it shows up
+        try (Connection open = foreignTransaction(first)) {
+            commitForeign(second);
+            sync.poll();
+            Thread.sleep(GRACE_MILLIS + 200);
+            changes = sync.poll();
+            check(changes.reload(), "Überfällige Lücke lädt alles neu", changes);
+            open.commit();
+        }
+        changes = sync.poll();
+        check(!changes.reload() && ids(changes.bookings()).equals("[" + first + "]"), "Verspäteter Commit wird noch geladen", changes);
+
+        // A rolled-back transaction: one reload, then nothing more
+        try (Connection open = foreignTransaction(first)) {
+            commitForeign(second);
+            sync.poll();
+            open.rollback();
+        }
+        Thread.sleep(GRACE_MILLIS + 200);
+        check(sync.poll().reload(), "Lücke einer zurückgerollten Transaktion lädt neu", null);
+        check(sync.poll().isEmpty(), "Danach keine weiteren Änderungen", null);
+
+        System.out.println(failures == 0 ? "DeltaSyncCheck: alle Prüfungen bestanden" : "DeltaSyncCheck: " + failures + " fehlgeschlagen");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // Change log entry of another client for the booking, committed right away
+    private static void commitForeign(int id) throws SQLException {
+        try (Connection conn = foreignTransaction(id)) {
+            conn.commit();
+        }
+    }
+
+    // Open transaction of another client that has written an entry for the booking
+    private static Connection foreignTransaction(int id) throws SQLException {
+        Connection conn = DriverManager.getConnection(URL, AppConfig.getString("db.user", "root"), AppConfig.getString("db.password", ""));
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO Aenderung (Tabelle, ID, Client) VALUES ('B', ?, 'anderer')")) {
+            pstmt.setInt(1, id);
+            pstmt.executeUpdate();
+        }
+        return conn;
+    }
+
+    private static String ids(BookingStore bookings) {
+        int[] ids = new int[bookings.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = bookings.id(i);
+        }
+        Arrays.sort(ids);
+        return Arrays.toString(ids);
+    }
+
+    private static void check(boolean ok, String name, DeltaSync.Changes changes) {
+        if (!ok) {
+            failures++;
+        }
+        System.out.println((ok ? "OK     " : "FEHLER ") + name + (ok || changes == null ? ""
+                : ": " + ids(changes.bookings()) + " gelöscht " + Arrays.toString(changes.deletedIds()) + " reload " + changes.reload()));
+    }
+}